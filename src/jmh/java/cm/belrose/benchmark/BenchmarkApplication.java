@@ -0,0 +1,121 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.SpringBootAppWithCucumberApplication;
+import cm.belrose.model.User;
+import cm.belrose.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application for benchmarks.
+ * <p>
+ * The full Spring context (JPA, Hibernate, caches, transactions) is started without the
+ * embedded web server, with the "benchmark" profile (application-benchmark.yaml),
+ * so benchmarks measure the same code paths as production minus HTTP. Benchmarks of the
+ * HTTP layer itself start the web server instead ({@link #startWebServer}).
+ */
+final class BenchmarkApplication {
+
+  private static final int SEED_CHUNK_SIZE = 1000;
+
+  private BenchmarkApplication() {
+  }
+
+  /**
+   * Start a fresh application context.
+   *
+   * @param profiles extra profiles to activate next to "benchmark"
+   * @return the running context, to be closed in the @TearDown method
+   */
+  static ConfigurableApplicationContext start(String... profiles) {
+    return start(Map.of(), profiles);
+  }
+
+  /**
+   * Start a fresh application context with extra properties.
+   *
+   * @param properties properties overriding the profiles, e.g. "app.cache.warm-up.enabled"
+   * @param profiles   extra profiles to activate next to "benchmark"
+   * @return the running context, to be closed in the @TearDown method
+   */
+  static ConfigurableApplicationContext start(Map<String, Object> properties,
+      String... profiles) {
+    List<String> activeProfiles = new ArrayList<>(List.of("benchmark"));
+    activeProfiles.addAll(List.of(profiles));
+    return new SpringApplicationBuilder(SpringBootAppWithCucumberApplication.class)
+        .web(WebApplicationType.NONE)
+        .profiles(activeProfiles.toArray(String[]::new))
+        .run(args(properties));
+  }
+
+  /**
+   * Start a fresh application context with exactly the given profiles (without "benchmark",
+   * e.g. to measure the default logging configuration), behind the embedded web server on a
+   * random port: requests then go through the whole servlet filter chain.
+   *
+   * @param properties properties overriding the profiles
+   * @param profiles   the profiles to activate
+   * @return the running context, to be closed in the @TearDown method; see {@link #port}
+   */
+  static ConfigurableApplicationContext startWebServer(Map<String, Object> properties,
+      String... profiles) {
+    Map<String, Object> serverProperties = new LinkedHashMap<>(properties);
+    serverProperties.put("server.port", 0);
+    return new SpringApplicationBuilder(SpringBootAppWithCucumberApplication.class)
+        .web(WebApplicationType.SERVLET)
+        .profiles(profiles)
+        .run(args(serverProperties));
+  }
+
+  /**
+   * The port of a context started by {@link #startWebServer}.
+   */
+  static int port(ConfigurableApplicationContext context) {
+    return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+  }
+
+  /**
+   * Properties as command line arguments: they take precedence over the profile files.
+   */
+  private static String[] args(Map<String, Object> properties) {
+    return properties.entrySet().stream()
+        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+        .toArray(String[]::new);
+  }
+
+  /**
+   * Insert {@code count} users named "Seed User n" / seedn@example.com.
+   *
+   * @return the inserted users, with their generated IDs
+   */
+  static List<User> seedUsers(ConfigurableApplicationContext context, int count) {
+    List<User> users = new ArrayList<>(count);
+    seedUsers(context, count, users::addAll);
+    return users;
+  }
+
+  /**
+   * Insert {@code count} users named "Seed User n" / seedn@example.com, without keeping them
+   * in memory (for data sets of millions of rows).
+   *
+   * @param savedChunk called with each chunk of saved users, with their generated IDs
+   */
+  static void seedUsers(ConfigurableApplicationContext context, int count,
+      Consumer<List<User>> savedChunk) {
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    List<User> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+    for (int i = 1; i <= count; i++) {
+      chunk.add(new User("Seed User " + i, "seed" + i + "@example.com"));
+      if (chunk.size() == SEED_CHUNK_SIZE || i == count) {
+        savedChunk.accept(userRepository.saveAll(chunk));
+        chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.model.User;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost of logging on the request hot path: dev vs default vs prod logging.
+ * <p>
+ * - dev: controller/service DEBUG lines, every request in the access log, synchronous console
+ * - default: INFO, one request in ten in the access log, SQL statements at DEBUG
+ * - prod: INFO, one request in a hundred in the access log, no SQL logging, async console
+ * Requests go through the embedded web server, so the servlet filters run too (the access log
+ * is SampledRequestLoggingFilter); several threads expose the contention on the synchronous
+ * console appender. Rate limiting and load shedding are off: every request is served.
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=LoggingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class LoggingBenchmark {
+
+  @Param({"dev", "default", "prod"})
+  public String profile;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient httpClient;
+  private String usersUrl;
+  private List<User> seededUsers;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.startWebServer(Map.of(
+        "app.rate-limit.enabled", false,
+        "app.load-shedding.enabled", false), profile);
+    httpClient = HttpClient.newHttpClient();
+    usersUrl = "http://localhost:" + BenchmarkApplication.port(context) + "/api/users";
+    seededUsers = BenchmarkApplication.seedUsers(context, 1000);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    httpClient.close();
+    context.close();
+  }
+
+  @Benchmark
+  public HttpResponse<String> getUserById() throws IOException, InterruptedException {
+    User user = seededUsers.get(ThreadLocalRandom.current().nextInt(seededUsers.size()));
+    return send(HttpRequest.newBuilder(URI.create(usersUrl + "/" + user.getId())).GET());
+  }
+
+  @Benchmark
+  public HttpResponse<String> createUser() throws IOException, InterruptedException {
+    long n = sequence.incrementAndGet();
+    String body = "{\"name\":\"Log User " + n + "\",\"email\":\"log" + n + "@example.com\"}";
+    return send(HttpRequest.newBuilder(URI.create(usersUrl))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body)));
+  }
+
+  private HttpResponse<String> send(HttpRequest.Builder request)
+      throws IOException, InterruptedException {
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
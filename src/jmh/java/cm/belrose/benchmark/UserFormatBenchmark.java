@@ -0,0 +1,131 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.controller.ApiMediaTypes;
+import cm.belrose.model.User;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * Payload size and (de)serialization cost of a user list in JSON, CBOR and Smile,
+ * through the HttpMessageConverters of the controllers: the application is started with its
+ * web server, and the converters (and their mappers) are taken from Spring MVC.
+ * <p>
+ * Payload sizes are in the results, as the "·bytes" secondary metric: bytes written or read
+ * per second, so ·bytes divided by the score is the size of one payload.
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserFormatBenchmark {
+
+  @Param({"json", "cbor", "smile"})
+  public String format;
+
+  /**
+   * Number of users in the serialized list.
+   */
+  @Param({"1", "100", "1000"})
+  public int listSize;
+
+  private ConfigurableApplicationContext context;
+  private HttpMessageConverter<Object> converter;
+  private MediaType mediaType;
+  private User[] users;
+  private byte[] payload;
+
+  /**
+   * Bytes written or read by the measured operations of one thread, reported next to the
+   * score (normalized per second like the score itself).
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class PayloadCounters {
+
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    context = BenchmarkApplication.startWebServer(Map.of(), "benchmark");
+    mediaType = switch (format) {
+      case "json" -> MediaType.APPLICATION_JSON;
+      case "cbor" -> MediaType.APPLICATION_CBOR;
+      case "smile" -> ApiMediaTypes.SMILE;
+      default -> throw new IllegalArgumentException("Unknown format: " + format);
+    };
+    converter = controllerConverter(context, mediaType);
+
+    users = new User[listSize];
+    for (int i = 0; i < listSize; i++) {
+      users[i] = new User("Format User " + i, "format" + i + "@example.com");
+      users[i].setId((long) i + 1);
+      users[i].setVersion(0L);
+    }
+    payload = write();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] serialize(PayloadCounters counters) throws IOException {
+    byte[] written = write();
+    counters.bytes += written.length;
+    return written;
+  }
+
+  @Benchmark
+  public Object deserialize(PayloadCounters counters) throws IOException {
+    MockHttpInputMessage input = new MockHttpInputMessage(payload);
+    input.getHeaders().setContentType(mediaType);
+    counters.bytes += payload.length;
+    return converter.read(User[].class, input);
+  }
+
+  private byte[] write() throws IOException {
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(users, mediaType, output);
+    return output.getBodyAsBytes();
+  }
+
+  /**
+   * The converter Spring MVC picks for a user list in this media type.
+   */
+  @SuppressWarnings("unchecked")
+  private static HttpMessageConverter<Object> controllerConverter(
+      ConfigurableApplicationContext context, MediaType mediaType) {
+    return (HttpMessageConverter<Object>) context.getBean(RequestMappingHandlerAdapter.class)
+        .getMessageConverters().stream()
+        .filter(converter -> converter.canRead(User[].class, mediaType)
+            && converter.canWrite(User[].class, mediaType))
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("No converter for " + mediaType));
+  }
+}
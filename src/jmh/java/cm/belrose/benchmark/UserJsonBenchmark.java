@@ -0,0 +1,81 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.model.User;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Benchmarks of User JSON (de)serialization through the Spring HttpMessageConverter stack,
+ * i.e. what the controller pays to read a request body and write a response body.
+ * <p>
+ * The converter is built on the application's own JsonMapper, so any customization
+ * registered in the context is measured too.
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserJsonBenchmark {
+
+  /**
+   * Number of users in the serialized list (1 = single user response).
+   */
+  @Param({"1", "100", "1000"})
+  public int listSize;
+
+  private ConfigurableApplicationContext context;
+  private JacksonJsonHttpMessageConverter converter;
+  private User[] users;
+  private byte[] json;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    context = BenchmarkApplication.start();
+    converter = new JacksonJsonHttpMessageConverter(context.getBean(JsonMapper.class));
+
+    users = new User[listSize];
+    for (int i = 0; i < listSize; i++) {
+      users[i] = new User("Json User " + i, "json" + i + "@example.com");
+      users[i].setId((long) i + 1);
+    }
+    json = write();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return write();
+  }
+
+  @Benchmark
+  public Object deserialize() throws IOException {
+    return converter.read(User[].class, new MockHttpInputMessage(json));
+  }
+
+  private byte[] write() throws IOException {
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(users, MediaType.APPLICATION_JSON, output);
+    return output.getBodyAsBytes();
+  }
+}
@@ -0,0 +1,79 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.model.User;
+import cm.belrose.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost of UserRepository.saveAll with and without JDBC insert batching.
+ * <p>
+ * jdbcBatchSize=0 turns batching off (hibernate.jdbc.batch_size): one statement round trip per
+ * user, the "before" number. The other sizes group the inserts into JDBC batches; 50 is the
+ * configured value. IDs come from the pooled users_seq sequence in every case, so only the
+ * INSERT round trips differ.
+ * <p>
+ * The in-memory H2 database makes a round trip almost free, so this shows the least gain
+ * batching can give; with a database over the network it grows with the latency.
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserSaveAllBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserSaveAllBenchmark {
+
+  @Param({"0", "10", "50", "100"})
+  public int jdbcBatchSize;
+
+  @Param({"100", "1000"})
+  public int usersPerCall;
+
+  private ConfigurableApplicationContext context;
+  private UserRepository userRepository;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start(
+        Map.of("spring.jpa.properties.hibernate.jdbc.batch_size", jdbcBatchSize));
+    userRepository = context.getBean(UserRepository.class);
+  }
+
+  /**
+   * Every iteration starts from an empty table: its size does not drift between batch sizes.
+   */
+  @Setup(Level.Iteration)
+  public void emptyTable() {
+    userRepository.deleteAllInBatch();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<User> saveAll() {
+    List<User> users = new ArrayList<>(usersPerCall);
+    for (int i = 0; i < usersPerCall; i++) {
+      long n = sequence.incrementAndGet();
+      users.add(new User("Bench User " + n, "bench" + n + "@example.com"));
+    }
+    return userRepository.saveAll(users);
+  }
+}
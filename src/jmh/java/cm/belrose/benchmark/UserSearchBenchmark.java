@@ -0,0 +1,122 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.dto.UserSearch;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.model.User;
+import cm.belrose.search.UserTextIndex;
+import cm.belrose.service.UserService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency of GET /api/users/search queries as the table grows.
+ * <p>
+ * Every 10th seeded user is inactive. With the idx_users_active_id and idx_users_email_lower
+ * indexes, the indexed searches should take about the same time at every data set size;
+ * the name-only search ("%part%", not indexable) is there for comparison with the same
+ * kind of search answered by the trigram index (?q=).
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSearchBenchmark {
+
+  private static final int INACTIVE_EVERY = 10;
+
+  @Param({"10000", "100000", "1000000"})
+  public int datasetSize;
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private UserTextIndex userTextIndex;
+  private long maxId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    userService = context.getBean(UserService.class);
+    BenchmarkApplication.seedUsers(context, datasetSize, users -> {
+      userService.deactivateUsers(users.stream()
+          .map(User::getId)
+          .filter(id -> id % INACTIVE_EVERY == 0)
+          .toList());
+      maxId = Math.max(maxId, users.getLast().getId());
+    });
+    // Seeded through the repository: index what's in the table now
+    userTextIndex = context.getBean(UserTextIndex.class);
+    userTextIndex.rebuild();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * Email prefix matching a handful of users: index range scan on email_lower.
+   */
+  @Benchmark
+  public List<UserSummary> searchByEmailPrefix() {
+    String prefix = "seed" + (1 + ThreadLocalRandom.current().nextInt(datasetSize)) + "@";
+    return userService.searchUsers(new UserSearch(null, prefix, null, null), null, null);
+  }
+
+  /**
+   * A page of inactive users, from a random position: seek in idx_users_active_id.
+   */
+  @Benchmark
+  public List<UserSummary> searchInactivePage() {
+    return userService.searchUsers(new UserSearch(null, null, null, false), randomId(), null);
+  }
+
+  /**
+   * Email prefix + active flag, from a random position.
+   */
+  @Benchmark
+  public List<UserSummary> searchActiveByEmailPrefix() {
+    return userService.searchUsers(new UserSearch(null, "seed1", null, true), randomId(), null);
+  }
+
+  /**
+   * Name substring only: not indexable, reads users in ID order until the page is full.
+   */
+  @Benchmark
+  public List<UserSummary> searchByNamePart() {
+    return userService.searchUsers(new UserSearch(null, null, "user 9", null), randomId(), null);
+  }
+
+  /**
+   * Name substring answered by the trigram index, then a primary key lookup per match.
+   */
+  @Benchmark
+  public List<UserSummary> searchByText() {
+    return userService.searchUsers(new UserSearch("user 9", null, null, null), randomId(), null);
+  }
+
+  /**
+   * The trigram index lookup alone, without the database.
+   */
+  @Benchmark
+  public long[] textIndexLookup() {
+    String text = "user " + (1 + ThreadLocalRandom.current().nextInt(datasetSize));
+    return userTextIndex.search(text, 0, UserService.DEFAULT_PAGE_SIZE);
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(maxId);
+  }
+}
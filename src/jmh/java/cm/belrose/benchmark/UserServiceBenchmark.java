@@ -0,0 +1,86 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.dto.UserSummary;
+import cm.belrose.model.User;
+import cm.belrose.service.UserService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmarks of the UserService CRUD hot paths.
+ * <p>
+ * Each trial starts the application and seeds {@code datasetSize} users, so the effect of the
+ * table size on every operation is visible (e.g. getAllUsers grows with it, getUsers doesn't).
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserServiceBenchmark {
+
+  @Param({"1000", "100000"})
+  public int datasetSize;
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private List<User> seededUsers;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    userService = context.getBean(UserService.class);
+    seededUsers = BenchmarkApplication.seedUsers(context, datasetSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public User createUser() {
+    long n = sequence.incrementAndGet();
+    return userService.createUser(new User("Bench User " + n, "bench" + n + "@example.com"));
+  }
+
+  @Benchmark
+  public UserSummary getUserById() {
+    return userService.getUserById(randomUser().getId());
+  }
+
+  @Benchmark
+  public List<UserSummary> getAllUsers() {
+    return userService.getAllUsers();
+  }
+
+  @Benchmark
+  public List<UserSummary> getUsersPage() {
+    return userService.getUsers(null, UserService.DEFAULT_PAGE_SIZE);
+  }
+
+  @Benchmark
+  public UserSummary updateUser() {
+    User user = randomUser();
+    User details = new User("Updated User " + sequence.incrementAndGet(), user.getEmail());
+    return userService.updateUser(user.getId(), details, null);
+  }
+
+  private User randomUser() {
+    return seededUsers.get(ThreadLocalRandom.current().nextInt(seededUsers.size()));
+  }
+}
@@ -0,0 +1,107 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.dto.UserSummary;
+import cm.belrose.repository.UserRepository;
+import cm.belrose.service.UserService;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+/**
+ * Restart of the "persistent" profile with {@code datasetSize} users already on disk,
+ * with and without cache warm-up (app.cache.warm-up.enabled):
+ * - startup: time to start (and close) the application; warm-up makes it longer
+ * - firstReads: the first {@link #READS} getUserById after a restart, spread over the warmed up
+ *   range; warm-up should turn them into cache hits instead of cold database reads
+ * The database file is created and seeded once, under build/jmh-data, and reused by later runs.
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserStartupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class UserStartupBenchmark {
+
+  private static final int READS = 1000;
+  private static final String DIRECTORY = "build/jmh-data";
+
+  @Param({"1000000"})
+  public int datasetSize;
+
+  @Param({"false", "true"})
+  public boolean warmUp;
+
+  private long firstId;
+
+  @Setup(Level.Trial)
+  public void seed() {
+    try (ConfigurableApplicationContext seeding = start(false)) {
+      UserRepository userRepository = seeding.getBean(UserRepository.class);
+      if (userRepository.count() < datasetSize) {
+        userRepository.deleteAllInBatch();
+        BenchmarkApplication.seedUsers(seeding, datasetSize, chunk -> { });
+      }
+      firstId = userRepository.findSummariesAfter(0L, Limit.of(1)).getFirst().id();
+    }
+  }
+
+  @Benchmark
+  public void startup() {
+    start(warmUp).close();
+  }
+
+  @Benchmark
+  public long firstReads(Restarted restarted) {
+    long checksum = 0;
+    for (int i = 0; i < READS; i++) {
+      // The warm-up loads the first app.cache.warm-up.size (10000) users
+      long id = firstId + ThreadLocalRandom.current().nextInt(10_000);
+      UserSummary user = restarted.userService.getUserById(id);
+      checksum += user.version();
+    }
+    return checksum;
+  }
+
+  /**
+   * A freshly restarted application for each firstReads call (restart not measured).
+   */
+  @State(Scope.Benchmark)
+  public static class Restarted {
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Invocation)
+    public void restart(UserStartupBenchmark benchmark) {
+      context = start(benchmark.warmUp);
+      userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+      context.close();
+    }
+  }
+
+  private static ConfigurableApplicationContext start(boolean warmUp) {
+    return BenchmarkApplication.start(Map.of(
+        "app.persistence.directory", DIRECTORY,
+        "app.cache.warm-up.enabled", warmUp), "persistent");
+  }
+}
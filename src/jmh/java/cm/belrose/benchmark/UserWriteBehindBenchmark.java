@@ -0,0 +1,66 @@
+package cm.belrose.benchmark;
+
+import cm.belrose.model.User;
+import cm.belrose.service.UserService;
+import cm.belrose.service.UserWriteBehindService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Write throughput under concurrent callers: one transaction per createUser vs group commits
+ * through UserWriteBehindService (durability COMMITTED: each caller still waits for its commit).
+ * <p>
+ * The in-memory H2 database makes commits cheap, so this mostly shows the queueing overhead;
+ * the gain of group commits grows with the cost of a commit (log flush of a durable database).
+ * <p>
+ * Run with: ./gradlew jmh -Pjmh.includes=UserWriteBehindBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class UserWriteBehindBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private UserWriteBehindService userWriteBehindService;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    userService = context.getBean(UserService.class);
+    userWriteBehindService = context.getBean(UserWriteBehindService.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public User createUserDirect() {
+    return userService.createUser(newUser());
+  }
+
+  @Benchmark
+  public User createUserWriteBehind() {
+    return userWriteBehindService.createUser(newUser()).join();
+  }
+
+  private User newUser() {
+    long n = sequence.incrementAndGet();
+    return new User("Bench User " + n, "bench" + n + "@example.com");
+  }
+}
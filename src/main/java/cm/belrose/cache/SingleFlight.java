@@ -0,0 +1,82 @@
+package cm.belrose.cache;
+
+import io.micrometer.core.instrument.Counter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Merges concurrent loads of the same key into one ("single flight").
+ * <p>
+ * The first caller of {@link #load} for a key runs the loader; callers arriving while it runs
+ * wait for its result (or its exception) instead of running the loader again. When a popular
+ * entry is evicted, hundreds of concurrent misses turn into one database query.
+ * Merged calls are counted in the {@code collapsed} counter.
+ * <p>
+ * {@link #forget(Object)} detaches the load in flight for a key: callers arriving afterwards
+ * start a new load, and {@link #load} reports to the caller that its result may be stale.
+ */
+class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+  private final Counter collapsed;
+
+  SingleFlight(Counter collapsed) {
+    this.collapsed = collapsed;
+  }
+
+  /**
+   * Load a value, or wait for the load of the same key already in flight.
+   *
+   * @param key      the key
+   * @param loader   loads the value; what it throws is rethrown to every waiting caller
+   * @param onLoaded called with the loaded value before waiting callers get it
+   *                 (e.g. to put it in a cache)
+   * @param onStale  called when the key was forgotten during the load: the value may predate
+   *                 the invalidation (e.g. evict what onLoaded put)
+   * @return the value
+   */
+  V load(K key, Function<K, V> loader, Consumer<V> onLoaded, Runnable onStale) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      collapsed.increment();
+      return await(inFlight);
+    }
+
+    try {
+      V value = loader.apply(key);
+      onLoaded.accept(value);
+      flight.complete(value);
+      return value;
+    } catch (RuntimeException ex) {
+      flight.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      if (!flights.remove(key, flight)) {
+        onStale.run();
+      }
+    }
+  }
+
+  /**
+   * Detach the load in flight for this key, if any (the key was just invalidated).
+   */
+  void forget(K key) {
+    flights.remove(key);
+  }
+
+  private static <V> V await(CompletableFuture<V> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package cm.belrose.cache;
+
+import cm.belrose.dto.UserSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.Function;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through caches in front of the user repository.
+ * <p>
+ * Two caches are kept:
+ * - users: user ID → user
+ * - userIdsByEmail: email → user ID (so a lookup by email reuses the users cache)
+ * <p>
+ * Users are cached as immutable UserSummary records, so they can be shared between requests.
+ * <p>
+ * Misses go through a {@link SingleFlight} per cache: concurrent misses on the same key
+ * (e.g. a popular user just evicted) share one database query. Spring's Cache.get(key, Callable)
+ * is not used for this: Caffeine would run the loader while holding a lock of its hash table,
+ * blocking unrelated keys too, and wouldn't share a failure (404) with the waiting callers.
+ * Shared loads are counted in "user.cache.collapsed-loads" (tag "cache").
+ * <p>
+ * Invalidation: {@link #evict(Long, String...)} removes the entries right away AND again after the
+ * current transaction commits. The second eviction matters: a concurrent reader could otherwise
+ * load the old row between our eviction and our commit and put it back in the cache.
+ * A load in flight during an eviction doesn't put its (possibly old) value back either:
+ * the eviction detaches it, and it evicts what it put.
+ */
+@Component
+public class UserCache {
+
+  public static final String USERS = "users";
+  public static final String USER_IDS_BY_EMAIL = "userIdsByEmail";
+
+  private final Cache users;
+  private final Cache userIdsByEmail;
+  private final SingleFlight<Long, UserSummary> userLoads;
+  private final SingleFlight<String, Long> userIdLoads;
+
+  public UserCache(CacheManager cacheManager, MeterRegistry meterRegistry) {
+    this.users = cacheManager.getCache(USERS);
+    this.userIdsByEmail = cacheManager.getCache(USER_IDS_BY_EMAIL);
+    this.userLoads = new SingleFlight<>(
+        meterRegistry.counter("user.cache.collapsed-loads", "cache", USERS));
+    this.userIdLoads = new SingleFlight<>(
+        meterRegistry.counter("user.cache.collapsed-loads", "cache", USER_IDS_BY_EMAIL));
+  }
+
+  /**
+   * Get a user from the cache, loading it on a miss.
+   *
+   * @param id     the user ID
+   * @param loader called on a miss; may throw (e.g. UserNotFoundException), nothing is cached then
+   * @return the cached or freshly loaded user
+   */
+  public UserSummary getUser(Long id, Function<Long, UserSummary> loader) {
+    return get(users, userLoads, UserSummary.class, id, loader);
+  }
+
+  /**
+   * Get a user ID by email from the cache, loading it on a miss.
+   *
+   * @param email  the email
+   * @param loader called on a miss; may throw, nothing is cached then
+   * @return the cached or freshly loaded user ID
+   */
+  public Long getUserId(String email, Function<String, Long> loader) {
+    return get(userIdsByEmail, userIdLoads, Long.class, email, loader);
+  }
+
+  /**
+   * Put a user in the cache without a lookup (cache warm-up).
+   * Must not race with updates of that user: see UserCacheWarmer.
+   *
+   * @param user the user, as currently stored
+   */
+  public void put(UserSummary user) {
+    users.put(user.id(), user);
+  }
+
+  /**
+   * Invalidate a user and the given emails, now and after the current transaction commits.
+   *
+   * @param id     the user ID (may be null when only emails are known)
+   * @param emails emails that may map to this user
+   */
+  public void evict(Long id, String... emails) {
+    evictNow(id, emails);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          evictNow(id, emails);
+        }
+      });
+    }
+  }
+
+  /**
+   * Remove every entry of both caches.
+   */
+  public void clear() {
+    users.clear();
+    userIdsByEmail.clear();
+  }
+
+  /**
+   * Detach the loads in flight first, then evict: a load either sees it was detached and evicts
+   * its value itself, or put its value before our eviction.
+   */
+  private void evictNow(Long id, String... emails) {
+    if (id != null) {
+      userLoads.forget(id);
+      users.evict(id);
+    }
+    for (String email : emails) {
+      if (email != null) {
+        userIdLoads.forget(email);
+        userIdsByEmail.evict(email);
+      }
+    }
+  }
+
+  /**
+   * Read-through lookup: the cached value, or a single-flight load put in the cache.
+   * Nothing is cached when the loader throws.
+   */
+  private static <K, V> V get(Cache cache, SingleFlight<K, V> loads, Class<V> type, K key,
+      Function<K, V> loader) {
+    V cached = cache.get(key, type);
+    if (cached != null) {
+      return cached;
+    }
+    return loads.load(key, loader, value -> cache.put(key, value), () -> cache.evict(key));
+  }
+}
@@ -0,0 +1,61 @@
+package cm.belrose.cache;
+
+import cm.belrose.config.UserCacheProperties;
+import cm.belrose.datasource.PrimaryReads;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.repository.UserRepository;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the users cache from the database on startup (app.cache.warm-up.enabled).
+ * <p>
+ * With a persistent database (see application-persistent.yaml) the data is already there after
+ * a restart, but the cache is empty: without warm-up the first requests all miss and hit a
+ * database whose own page cache is cold too. Reading the first app.cache.warm-up.size users in
+ * keyset-ordered chunks loads both the users cache and the database pages.
+ * <p>
+ * Runs once all beans are created, before the web server starts: no request can update a user
+ * meanwhile, so the warm-up can't put back an outdated user.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.warm-up.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheWarmer implements SmartInitializingSingleton {
+
+  private static final int CHUNK_SIZE = 1000;
+
+  private final UserRepository userRepository;
+  private final UserCache userCache;
+  private final UserCacheProperties properties;
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    long start = System.nanoTime();
+    long size = Math.min(properties.warmUp().size(), properties.users().maximumSize());
+
+    long loaded = 0;
+    long after = 0;
+    while (loaded < size) {
+      long from = after;
+      int limit = (int) Math.min(CHUNK_SIZE, size - loaded);
+      // Cached entries come from the primary, like the loads of UserCache
+      List<UserSummary> chunk = PrimaryReads.call(() ->
+          userRepository.findSummariesAfter(from, Limit.of(limit)));
+      if (chunk.isEmpty()) {
+        break;
+      }
+      chunk.forEach(userCache::put);
+      loaded += chunk.size();
+      after = chunk.getLast().id();
+    }
+    log.info("User cache warmed up: {} users in {} ms", loaded,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+}
@@ -0,0 +1,180 @@
+package cm.belrose.changes;
+
+import cm.belrose.config.UserChangesProperties;
+import cm.belrose.dto.UserChangeEvent;
+import cm.belrose.model.UserChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains the user outbox into the change stream.
+ * <p>
+ * A single thread takes the unpublished outbox rows in insertion order, gives them the next
+ * stream positions and commits; only then are they appended to UserChangeStream. Positions
+ * are therefore given in publication order, without gaps, and a consumer that has seen
+ * position n has seen everything before it.
+ * <p>
+ * The thread is woken up by every commit that wrote to the outbox (see UserChangeService),
+ * and otherwise checks every app.changes.poll-interval (rows committed while it was down).
+ * It also deletes the published rows older than app.changes.retention.
+ * <p>
+ * Plain JDBC: the rows are read as values and numbered with one batched UPDATE, there is no
+ * entity state to manage. One publisher per database: positions are numbered in memory.
+ * <p>
+ * Metric: "user.changes.published" (changes appended to the stream).
+ */
+@Component
+@Slf4j
+public class UserChangePublisher implements SmartInitializingSingleton {
+
+  private static final String SELECT_LAST_SEQ = "select coalesce(max(seq), 0) from user_outbox";
+  private static final String SELECT_UNPUBLISHED = """
+      select id, user_id, change_type, name, email, active, version, changed_at
+      from user_outbox where seq is null order by id fetch first ? rows only""";
+  private static final String UPDATE_SEQ = "update user_outbox set seq = ? where id = ?";
+  private static final String DELETE_EXPIRED =
+      "delete from user_outbox where seq is not null and changed_at < ?";
+
+  /**
+   * How often expired rows are deleted.
+   */
+  private static final long PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final UserChangeStream stream;
+  private final UserChangesProperties properties;
+  private final Counter published;
+  private final Semaphore wakeUp = new Semaphore(0);
+  private final Thread publisher;
+  private volatile boolean running = true;
+
+  // Publisher thread only
+  private long lastSeq = -1;
+  private long nextPurge = System.nanoTime();
+
+  public UserChangePublisher(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager, UserChangeStream stream,
+      UserChangesProperties properties, MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.stream = stream;
+    this.properties = properties;
+    this.published = meterRegistry.counter("user.changes.published");
+    this.publisher = Thread.ofPlatform().name("user-change-publisher").unstarted(this::run);
+  }
+
+  /**
+   * Started once every singleton exists: the outbox table has been created (or validated).
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    publisher.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    wakeUp.release();
+    publisher.join();
+  }
+
+  /**
+   * Publish as soon as possible (called after a commit that wrote to the outbox).
+   */
+  public void wakeUp() {
+    wakeUp.release();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        if (lastSeq < 0) {
+          lastSeq = transactionTemplate.execute(
+              status -> jdbcTemplate.queryForObject(SELECT_LAST_SEQ, Long.class));
+          stream.start(lastSeq);
+        }
+        while (running && publishBatch() == properties.batchSize()) {
+          // a full batch: there may be more
+        }
+        purgeExpired();
+      } catch (RuntimeException ex) {
+        log.warn("Publishing user changes failed, retrying in {}", properties.pollInterval(), ex);
+      }
+      try {
+        wakeUp.tryAcquire(properties.pollInterval().toNanos(), TimeUnit.NANOSECONDS);
+        wakeUp.drainPermits();
+      } catch (InterruptedException ex) {
+        running = false;
+      }
+    }
+    log.debug("User change publisher stopped");
+  }
+
+  /**
+   * Number and commit one batch of outbox rows, then append it to the stream.
+   *
+   * @return the number of changes published
+   */
+  private int publishBatch() {
+    List<UserChangeEvent> events = transactionTemplate.execute(status -> {
+      List<OutboxRow> rows = jdbcTemplate.query(SELECT_UNPUBLISHED, UserChangePublisher::toRow,
+          properties.batchSize());
+      List<UserChangeEvent> numbered = new ArrayList<>(rows.size());
+      List<Object[]> positions = new ArrayList<>(rows.size());
+      long seq = lastSeq;
+      for (OutboxRow row : rows) {
+        seq++;
+        numbered.add(row.event().withSeq(seq));
+        positions.add(new Object[] {seq, row.id()});
+      }
+      jdbcTemplate.batchUpdate(UPDATE_SEQ, positions);
+      return numbered;
+    });
+    if (events.isEmpty()) {
+      return 0;
+    }
+    // Committed: the positions are final
+    lastSeq = events.getLast().seq();
+    stream.append(events);
+    published.increment(events.size());
+    return events.size();
+  }
+
+  private void purgeExpired() {
+    if (System.nanoTime() - nextPurge < 0) {
+      return;
+    }
+    nextPurge = System.nanoTime() + PURGE_INTERVAL_NANOS;
+    Timestamp threshold = Timestamp.from(Instant.now().minus(properties.retention()));
+    Integer deleted = transactionTemplate.execute(
+        status -> jdbcTemplate.update(DELETE_EXPIRED, threshold));
+    if (deleted != null && deleted > 0) {
+      log.debug("Deleted {} expired user changes", deleted);
+    }
+  }
+
+  private static OutboxRow toRow(ResultSet rs, int rowNum) throws SQLException {
+    return new OutboxRow(rs.getLong("id"), new UserChangeEvent(null, rs.getLong("user_id"),
+        UserChange.Type.valueOf(rs.getString("change_type")), rs.getString("name"),
+        rs.getString("email"), rs.getObject("active", Boolean.class),
+        rs.getObject("version", Long.class), rs.getTimestamp("changed_at").toInstant()));
+  }
+
+  private record OutboxRow(long id, UserChangeEvent event) {}
+}
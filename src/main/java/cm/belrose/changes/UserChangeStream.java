@@ -0,0 +1,106 @@
+package cm.belrose.changes;
+
+import cm.belrose.config.UserChangesProperties;
+import cm.belrose.dto.UserChangeEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process stream of the latest published user changes.
+ * <p>
+ * A ring buffer holds the last app.changes.buffer-size changes. Positions are contiguous
+ * (UserChangePublisher numbers them one by one), so the change at position n is in slot
+ * n % size: reading "changes since n" needs no search. Consumers that fell further behind
+ * read the outbox table instead (see UserChangeService).
+ * <p>
+ * Listeners (waiting long polls, SSE subscriptions) are run on the publisher thread after each
+ * append: they must not block.
+ * <p>
+ * Metric: "user.changes.listeners" (long polls and subscriptions waiting for changes).
+ */
+@Component
+public class UserChangeStream {
+
+  private final UserChangeEvent[] ring;
+  private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+  private boolean started;
+  private long firstSeq;
+  private long lastSeq;
+
+  public UserChangeStream(UserChangesProperties properties, MeterRegistry meterRegistry) {
+    this.ring = new UserChangeEvent[properties.bufferSize()];
+    meterRegistry.gauge("user.changes.listeners", listeners, Set::size);
+  }
+
+  /**
+   * Start (or restart) the stream after the given position, with an empty buffer.
+   */
+  public synchronized void start(long lastPublishedSeq) {
+    started = true;
+    firstSeq = lastPublishedSeq + 1;
+    lastSeq = lastPublishedSeq;
+  }
+
+  public synchronized boolean isStarted() {
+    return started;
+  }
+
+  /**
+   * @return the position of the latest published change
+   */
+  public synchronized long lastSeq() {
+    return lastSeq;
+  }
+
+  /**
+   * Append published changes, then notify the listeners.
+   *
+   * @param events changes numbered from lastSeq() + 1, without gaps
+   */
+  public void append(List<UserChangeEvent> events) {
+    synchronized (this) {
+      for (UserChangeEvent event : events) {
+        if (event.seq() != lastSeq + 1) {
+          throw new IllegalStateException(
+              "Change " + event.seq() + " does not follow " + lastSeq);
+        }
+        ring[(int) (event.seq() % ring.length)] = event;
+        lastSeq = event.seq();
+      }
+      firstSeq = Math.max(firstSeq, lastSeq - ring.length + 1);
+    }
+    listeners.forEach(Runnable::run);
+  }
+
+  /**
+   * Changes after a position, from the buffer.
+   *
+   * @param since the last position the consumer has seen
+   * @param limit the maximum number of changes to return
+   * @return the changes (empty if there are none yet), or null if they are no longer
+   *     (or not yet, right after startup) in the buffer
+   */
+  public synchronized List<UserChangeEvent> after(long since, int limit) {
+    if (!started || since + 1 < firstSeq) {
+      return null;
+    }
+    long last = Math.min(lastSeq, since + limit);
+    List<UserChangeEvent> events = new ArrayList<>((int) Math.max(0, last - since));
+    for (long seq = since + 1; seq <= last; seq++) {
+      events.add(ring[(int) (seq % ring.length)]);
+    }
+    return events;
+  }
+
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+}
@@ -0,0 +1,80 @@
+package cm.belrose.config;
+
+import cm.belrose.controller.UserChangeController;
+import cm.belrose.ratelimit.AdaptiveConcurrencyLimiter;
+import cm.belrose.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Admission control in front of /api/users.
+ * <p>
+ * Two interceptors, in this order:
+ * - RateLimitInterceptor (app.rate-limit): per client and endpoint budgets, HTTP 429.
+ *   Protects everyone from one client calling in a loop.
+ * - LoadSheddingInterceptor (app.load-shedding): adaptive concurrency limit, HTTP 503.
+ *   Protects the database (and the latency of admitted requests) when it slows down.
+ * Each one is only installed when enabled.
+ */
+@Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, LoadSheddingProperties.class})
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+  private static final String[] PATHS = {"/api/users", "/api/users/**"};
+
+  private final RateLimitProperties rateLimitProperties;
+  private final ObjectProvider<TokenBucketRateLimiter> rateLimiter;
+  private final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter;
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+
+  public AdmissionControlConfig(RateLimitProperties rateLimitProperties,
+      ObjectProvider<TokenBucketRateLimiter> rateLimiter,
+      ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    this.rateLimitProperties = rateLimitProperties;
+    this.rateLimiter = rateLimiter;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true")
+  public TokenBucketRateLimiter tokenBucketRateLimiter() {
+    return new TokenBucketRateLimiter(rateLimitProperties.maxClients(),
+        rateLimitProperties.idleExpiry());
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "app.load-shedding.enabled", havingValue = "true")
+  public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(LoadSheddingProperties properties,
+      MeterRegistry registry) {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties.initialLimit(),
+        properties.minLimit(), properties.maxLimit(), properties.targetLatency());
+    Gauge.builder("user.load-shedding.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+        .register(registry);
+    Gauge.builder("user.load-shedding.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+        .register(registry);
+    return limiter;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    MeterRegistry meters = meterRegistry.getObject();
+    rateLimiter.ifAvailable(limiter -> registry
+        .addInterceptor(new RateLimitInterceptor(limiter, rateLimitProperties, meters))
+        .addPathPatterns(PATHS));
+    concurrencyLimiter.ifAvailable(limiter -> registry
+        .addInterceptor(new LoadSheddingInterceptor(limiter,
+            meters.counter("user.load-shedding.rejected")))
+        .addPathPatterns(PATHS)
+        // Long polls and subscriptions wait for changes, not for the database
+        .excludePathPatterns(UserChangeController.PATH));
+  }
+}
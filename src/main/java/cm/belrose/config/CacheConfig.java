@@ -0,0 +1,42 @@
+package cm.belrose.config;
+
+import cm.belrose.cache.UserCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration.
+ * <p>
+ * Caffeine caches are bounded by size (W-TinyLFU eviction keeps the most frequently used entries)
+ * and by time (entries expire after a while even if nobody invalidates them).
+ * recordStats() enables the hit/miss/eviction counters; Spring Boot Actuator binds every cache
+ * of the CacheManager to Micrometer, so they show up as:
+ * - cache.gets{name=users, result=hit|miss}
+ * - cache.evictions{name=users}
+ * - cache.size{name=users}
+ * under /actuator/metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(UserCacheProperties.class)
+public class CacheConfig {
+
+  @Bean
+  public CacheManager cacheManager(UserCacheProperties properties) {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.registerCustomCache(UserCache.USERS, caffeine(properties.users()).build());
+    cacheManager.registerCustomCache(UserCache.USER_IDS_BY_EMAIL,
+        caffeine(properties.userIdsByEmail()).build());
+    return cacheManager;
+  }
+
+  private static Caffeine<Object, Object> caffeine(UserCacheProperties.Spec spec) {
+    return Caffeine.newBuilder()
+        .maximumSize(spec.maximumSize())
+        .expireAfterWrite(spec.expireAfterWrite())
+        .recordStats();
+  }
+}
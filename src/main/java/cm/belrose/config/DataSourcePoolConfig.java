@@ -0,0 +1,58 @@
+package cm.belrose.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Connection pool sized from the CPU count (app.datasource.pool.auto-size, see the
+ * "performance" profile).
+ * <p>
+ * spring.datasource.hikari.maximum-pool-size is a fixed number, written for one machine.
+ * The post-processor below sets it from Runtime.availableProcessors() (which honors container
+ * CPU limits) before the pool starts, so the same configuration fits every deployment.
+ * Only the user datasource is sized: the "dataSource" bean of Spring Boot, or the
+ * "primaryDataSource" pool with read replicas (see ReplicaDataSourceConfig). Any other
+ * HikariDataSource bean keeps its own size.
+ * <p>
+ * Pool metrics (hikaricp.connections.active / idle / pending / acquire / usage) are bound
+ * by Spring Boot Actuator; the performance profile adds the acquire-time histogram.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.pool.auto-size", havingValue = "true")
+@Slf4j
+public class DataSourcePoolConfig {
+
+  /**
+   * Names of the user datasource bean, without and with read replicas.
+   */
+  private static final Set<String> USER_DATASOURCES = Set.of("dataSource", "primaryDataSource");
+
+  /**
+   * Static: a BeanPostProcessor is created before the other beans, it must not need
+   * this configuration instance (nor the properties bean) to exist.
+   */
+  @Bean
+  public static BeanPostProcessor hikariPoolSizer(Environment environment) {
+    DataSourcePoolProperties properties = Binder.get(environment)
+        .bindOrCreate("app.datasource.pool", DataSourcePoolProperties.class);
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource && USER_DATASOURCES.contains(beanName)) {
+          int cores = Runtime.getRuntime().availableProcessors();
+          dataSource.setMaximumPoolSize(properties.poolSize(cores));
+          log.info("Connection pool {}: {} connections for {} cores", beanName,
+              dataSource.getMaximumPoolSize(), cores);
+        }
+        return bean;
+      }
+    };
+  }
+}
@@ -0,0 +1,26 @@
+package cm.belrose.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the connection pool from the number of CPU cores, bound from "app.datasource.pool".
+ * <p>
+ * maximum-pool-size = cores × connections-per-core + extra-connections
+ * (the classic "cores × 2 + spindles" starting point: a connection is only useful while a core
+ * can run its query; more connections only add contention inside the database).
+ *
+ * @param autoSize           whether the pool size is computed (see DataSourcePoolConfig)
+ * @param connectionsPerCore connections per available processor
+ * @param extraConnections   added on top, for connections waiting on I/O
+ */
+@ConfigurationProperties(prefix = "app.datasource.pool")
+public record DataSourcePoolProperties(boolean autoSize, int connectionsPerCore,
+    int extraConnections) {
+
+  /**
+   * The pool size for this machine.
+   */
+  public int poolSize(int cores) {
+    return cores * connectionsPerCore + extraConnections;
+  }
+}
@@ -0,0 +1,57 @@
+package cm.belrose.config;
+
+import cm.belrose.exception.ServiceOverloadedException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Limits the number of requests in flight so that virtual threads don't stampede the datasource.
+ * <p>
+ * A request takes a permit before reaching the controller and gives it back when the response
+ * is complete. Streaming responses (StreamingResponseBody) keep their permit during the async
+ * part too: it is released by afterCompletion of the ASYNC dispatch.
+ * When no permit is available within maxWait, the request is rejected with
+ * ServiceOverloadedException (HTTP 503) instead of waiting for a connection that won't come.
+ */
+public class DatabaseBulkheadInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String PERMIT_ATTRIBUTE =
+      DatabaseBulkheadInterceptor.class.getName() + ".PERMIT";
+
+  private final Semaphore permits;
+  private final Duration maxWait;
+
+  public DatabaseBulkheadInterceptor(int maxConcurrentRequests, Duration maxWait) {
+    this.permits = new Semaphore(maxConcurrentRequests, true);
+    this.maxWait = maxWait;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) throws InterruptedException {
+    if (request.getDispatcherType() == DispatcherType.ASYNC
+        || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+      return true;
+    }
+    if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+      throw new ServiceOverloadedException("Too many concurrent requests, please retry later",
+          maxWait);
+    }
+    request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+      request.removeAttribute(PERMIT_ATTRIBUTE);
+      permits.release();
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package cm.belrose.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * User export jobs configuration (see UserExportService), bound from "app.export".
+ * <p>
+ * The export thread pool is owned by UserExportService rather than declared as a bean:
+ * an Executor bean would make Spring Boot back off from its own applicationTaskExecutor,
+ * which Spring MVC uses for asynchronous requests (e.g. StreamingResponseBody).
+ */
+@Configuration
+@EnableConfigurationProperties(ExportProperties.class)
+public class ExportConfig {
+}
@@ -0,0 +1,18 @@
+package cm.belrose.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * User export jobs, bound from "app.export".
+ *
+ * @param directory  where export files are written
+ * @param chunkSize  users read per query (one short read-only transaction each)
+ * @param threads    exports running at the same time; further jobs wait in a queue
+ * @param queueSize  jobs allowed to wait; beyond that new jobs are rejected (503)
+ * @param retention  how long finished jobs and their files are kept
+ */
+@ConfigurationProperties(prefix = "app.export")
+public record ExportProperties(Path directory, int chunkSize, int threads, int queueSize,
+    Duration retention) {}
@@ -0,0 +1,63 @@
+package cm.belrose.config;
+
+import cm.belrose.exception.ServiceOverloadedException;
+import cm.belrose.ratelimit.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Sheds requests over the adaptive concurrency limit (see AdaptiveConcurrencyLimiter).
+ * <p>
+ * Unlike DatabaseBulkheadInterceptor, an over-limit request doesn't wait: it is rejected at
+ * once with ServiceOverloadedException (HTTP 503), since waiting is exactly what makes a slow
+ * database slower. The latency of every completed request is fed back to the limiter;
+ * streamed responses (ASYNC dispatch) release their slot without a sample, their duration
+ * depends on the data size rather than on the database latency.
+ */
+public class LoadSheddingInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String START_ATTRIBUTE =
+      LoadSheddingInterceptor.class.getName() + ".START";
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+  private final AdaptiveConcurrencyLimiter limiter;
+  private final Counter rejected;
+
+  public LoadSheddingInterceptor(AdaptiveConcurrencyLimiter limiter, Counter rejected) {
+    this.limiter = limiter;
+    this.rejected = rejected;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    if (request.getDispatcherType() == DispatcherType.ASYNC
+        || request.getAttribute(START_ATTRIBUTE) != null) {
+      return true;
+    }
+    if (!limiter.tryAcquire()) {
+      rejected.increment();
+      throw new ServiceOverloadedException("Server is overloaded, please retry later",
+          RETRY_AFTER);
+    }
+    request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    if (request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+      request.removeAttribute(START_ATTRIBUTE);
+      if (request.getDispatcherType() == DispatcherType.ASYNC) {
+        limiter.release();
+      } else {
+        limiter.release(System.nanoTime() - start);
+      }
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package cm.belrose.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Adaptive concurrency limit of /api/users, bound from "app.load-shedding".
+ * See {@link cm.belrose.ratelimit.AdaptiveConcurrencyLimiter}.
+ *
+ * @param enabled       whether requests over the limit are shed (503)
+ * @param initialLimit  requests allowed in flight at startup
+ * @param minLimit      the limit never goes below this
+ * @param maxLimit      the limit never goes above this
+ * @param targetLatency slower requests make the limit shrink, faster ones let it grow
+ */
+@ConfigurationProperties(prefix = "app.load-shedding")
+public record LoadSheddingProperties(boolean enabled, int initialLimit, int minLimit,
+    int maxLimit, Duration targetLatency) {}
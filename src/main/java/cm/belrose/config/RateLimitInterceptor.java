@@ -0,0 +1,69 @@
+package cm.belrose.config;
+
+import cm.belrose.exception.RateLimitExceededException;
+import cm.belrose.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Rejects requests of clients over their budget for the endpoint, before they reach the
+ * controller (and so the database).
+ * <p>
+ * The client is the remote address, or the value of the configured header (e.g. X-Client-Id)
+ * when the request comes from one of the trusted proxies (the gateway that sets it): anybody
+ * else could send a new ID with every request and never run out of budget. Without a trusted
+ * gateway, all clients behind one NAT or load balancer share the budgets of its address.
+ * The endpoint is the request method and the matched pattern ("GET /api/users/{id}"), so all
+ * user IDs share one budget.
+ * Rejected requests get a RateLimitExceededException (HTTP 429 with Retry-After) and are
+ * counted in "user.rate-limit.rejected" (tag "endpoint").
+ */
+public class RateLimitInterceptor implements AsyncHandlerInterceptor {
+
+  private final TokenBucketRateLimiter rateLimiter;
+  private final RateLimitProperties properties;
+  private final MeterRegistry meterRegistry;
+
+  public RateLimitInterceptor(TokenBucketRateLimiter rateLimiter, RateLimitProperties properties,
+      MeterRegistry meterRegistry) {
+    this.rateLimiter = rateLimiter;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      return true;
+    }
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String path = pattern != null ? pattern.toString() : request.getRequestURI();
+    String endpoint = request.getMethod() + " " + path;
+
+    long waitNanos = rateLimiter.tryAcquire(client(request), endpoint,
+        properties.budget(request.getMethod(), path));
+    if (waitNanos > 0) {
+      meterRegistry.counter("user.rate-limit.rejected", "endpoint", endpoint).increment();
+      throw new RateLimitExceededException("Rate limit exceeded for " + endpoint,
+          Duration.ofNanos(waitNanos));
+    }
+    return true;
+  }
+
+  private String client(HttpServletRequest request) {
+    String remoteAddress = request.getRemoteAddr();
+    if (properties.trustsClientHeaderFrom(remoteAddress)) {
+      String client = request.getHeader(properties.clientHeader());
+      if (client != null && !client.isBlank()) {
+        return client;
+      }
+    }
+    return remoteAddress;
+  }
+}
@@ -0,0 +1,64 @@
+package cm.belrose.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Per-client rate limits of /api/users, bound from "app.rate-limit".
+ * <p>
+ * Endpoints are identified as "METHOD pattern", e.g. "GET /api/users" or
+ * "POST /api/users/bulk" (in YAML: "[GET /api/users]").
+ * Budgets are validated on startup: a zero burst or rate would silently block (or, through
+ * an overflow, open) an endpoint.
+ *
+ * @param enabled       whether requests are rate limited
+ * @param clientHeader   request header identifying the client, set by a gateway; empty (the
+ *                       default) to always use the remote address
+ * @param trustedProxies remote addresses (the gateways) whose clientHeader is believed; from
+ *                       any other address the header is ignored, so a client can't get a fresh
+ *                       bucket by sending a new ID with every request
+ * @param defaultBudget budget of the endpoints not listed in {@code endpoints}
+ * @param endpoints     budget per endpoint
+ * @param maxClients    buckets kept in memory, at most (least recently used ones are dropped)
+ * @param idleExpiry    buckets unused for this long are dropped (they would be full again anyway)
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Validated
+public record RateLimitProperties(boolean enabled, String clientHeader,
+    Set<String> trustedProxies, @Valid @NotNull Budget defaultBudget,
+    Map<String, @Valid Budget> endpoints, long maxClients, Duration idleExpiry) {
+
+  public RateLimitProperties {
+    trustedProxies = trustedProxies == null ? Set.of() : Set.copyOf(trustedProxies);
+  }
+
+  /**
+   * Whether the client header of a request coming from this address can be believed.
+   */
+  public boolean trustsClientHeaderFrom(String remoteAddress) {
+    return StringUtils.hasText(clientHeader) && trustedProxies.contains(remoteAddress);
+  }
+
+  /**
+   * The budget of an endpoint for the given request method and pattern.
+   */
+  public Budget budget(String method, String pattern) {
+    return endpoints.getOrDefault(method + " " + pattern, defaultBudget);
+  }
+
+  /**
+   * A token bucket: {@code burst} requests at once, refilled at {@code perSecond} requests
+   * per second.
+   *
+   * @param burst     bucket capacity
+   * @param perSecond sustained rate
+   */
+  public record Budget(@Positive int burst, @Positive double perSecond) {}
+}
@@ -0,0 +1,85 @@
+package cm.belrose.config;
+
+import cm.belrose.datasource.ReplicaDataSource;
+import cm.belrose.datasource.ReplicaDataSource.NamedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Read-only transactions routed to read replicas (app.datasource.replicas.enabled, see the
+ * "replicas" profile).
+ * <p>
+ * Annotations explained:
+ * - @ConditionalOnProperty: without replicas, Spring Boot creates the usual single datasource
+ * - @Primary: the datasource used by JPA, Flyway and the health check is the routing one below
+ * <p>
+ * How a transaction finds its datasource:
+ * - the routing datasource is a LazyConnectionDataSourceProxy: the physical connection is
+ *   only fetched on the first SQL statement, after the transaction manager has marked the
+ *   connection read-only (@Transactional(readOnly = true))
+ * - read-only connections come from the read-only datasource (ReplicaDataSource: a replica,
+ *   or the primary when no replica answers); all others from the primary pool
+ * <p>
+ * UserRepository is read-only by default, so getUserById, getAllUsers, searches and exports
+ * read from replicas while mutations write to the primary. Replicas lag behind the primary:
+ * a read right after a write may not see it yet. The user cache does not hide that: it would
+ * keep such a stale row for its whole TTL, so its loads read the primary (PrimaryReads).
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+  /**
+   * The primary pool, configured like Spring Boot's own (spring.datasource.*, spring.datasource.hikari.*).
+   */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public ReplicaDataSource replicaDataSource(ReplicaProperties replicas,
+      DataSourceProperties properties, HikariDataSource primaryDataSource,
+      MeterRegistry meterRegistry) {
+    List<NamedDataSource> pools = new ArrayList<>();
+    for (String url : replicas.urls()) {
+      String name = "user-replica-" + (pools.size() + 1);
+      HikariDataSource pool = new HikariDataSource();
+      pool.setPoolName(name);
+      pool.setJdbcUrl(url);
+      pool.setDriverClassName(properties.determineDriverClassName());
+      pool.setUsername(properties.determineUsername());
+      pool.setPassword(properties.determinePassword());
+      pool.setMaximumPoolSize(replicas.poolSize());
+      pool.setConnectionTimeout(replicas.connectionTimeout().toMillis());
+      pool.setReadOnly(true);
+      // hikaricp.* metrics tagged pool=user-replica-N
+      pool.setMetricRegistry(meterRegistry);
+      pools.add(new NamedDataSource(name, pool));
+    }
+    return new ReplicaDataSource(pools, primaryDataSource, replicas.selection(),
+        replicas.retryAfter(), meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(HikariDataSource primaryDataSource,
+      ReplicaDataSource replicaDataSource) {
+    LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primaryDataSource);
+    routing.setReadOnlyDataSource(replicaDataSource);
+    return routing;
+  }
+}
@@ -0,0 +1,41 @@
+package cm.belrose.config;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Read replicas of the user datasource, bound from "app.datasource.replicas".
+ * See ReplicaDataSourceConfig. Replicas use the credentials and driver of spring.datasource.
+ * Only bound when replicas are enabled; validated on startup (an enabled configuration without
+ * replica URL fails to start instead of failing every read).
+ *
+ * @param enabled           whether read-only transactions are sent to the replicas
+ * @param urls              JDBC URL of each replica
+ * @param selection         how a replica is chosen for each read-only transaction
+ * @param poolSize          connections per replica
+ * @param connectionTimeout how long to wait for a replica connection before trying the next one
+ * @param retryAfter        how long a replica that failed to connect is skipped
+ */
+@ConfigurationProperties(prefix = "app.datasource.replicas")
+@Validated
+public record ReplicaProperties(boolean enabled, @NotEmpty List<String> urls,
+    @NotNull Selection selection, @Positive int poolSize, @NotNull Duration connectionTimeout,
+    @NotNull Duration retryAfter) {
+
+  public enum Selection {
+    /**
+     * Each replica in turn.
+     */
+    ROUND_ROBIN,
+    /**
+     * The replica that recently handed out connections the fastest (a busy or distant replica
+     * is slower to hand out connections).
+     */
+    LEAST_LATENCY
+  }
+}
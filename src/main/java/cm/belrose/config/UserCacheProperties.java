@@ -0,0 +1,41 @@
+package cm.belrose.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the user caches, bound from the "app.cache" section of application.yaml.
+ * <p>
+ * Example:
+ * app:
+ *   cache:
+ *     users:
+ *       maximum-size: 10000
+ *       expire-after-write: 10m
+ *     warm-up:
+ *       enabled: true
+ *       size: 10000
+ *
+ * @param users          cache of users by ID (GET /api/users/{id})
+ * @param userIdsByEmail cache of user IDs by email (GET /api/users/by-email)
+ * @param warmUp         filling of the users cache on startup (see UserCacheWarmer)
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public record UserCacheProperties(Spec users, Spec userIdsByEmail, WarmUp warmUp) {
+
+  /**
+   * Bounds of one cache.
+   *
+   * @param maximumSize      maximum number of entries before eviction kicks in
+   * @param expireAfterWrite how long an entry stays in the cache after it was loaded
+   */
+  public record Spec(long maximumSize, Duration expireAfterWrite) {}
+
+  /**
+   * Cache warm-up on startup.
+   *
+   * @param enabled whether the users cache is filled before the server accepts requests
+   * @param size    users loaded, at most (also capped by the cache size)
+   */
+  public record WarmUp(boolean enabled, long size) {}
+}
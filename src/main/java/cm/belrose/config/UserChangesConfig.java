@@ -0,0 +1,12 @@
+package cm.belrose.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * User change stream configuration (see UserChangePublisher), bound from "app.changes".
+ */
+@Configuration
+@EnableConfigurationProperties(UserChangesProperties.class)
+public class UserChangesConfig {
+}
@@ -0,0 +1,18 @@
+package cm.belrose.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Change stream of user mutations, bound from "app.changes".
+ *
+ * @param batchSize       outbox rows published per transaction
+ * @param pollInterval    how often the publisher looks for rows when no commit woke it up
+ * @param bufferSize      latest changes kept in memory; older ones are read from the outbox table
+ * @param longPollTimeout how long GET /api/users/changes waits for a change before answering []
+ * @param sseTimeout      lifetime of a text/event-stream subscription (clients then reconnect)
+ * @param retention       how long published changes stay in the outbox table
+ */
+@ConfigurationProperties(prefix = "app.changes")
+public record UserChangesProperties(int batchSize, Duration pollInterval, int bufferSize,
+    Duration longPollTimeout, Duration sseTimeout, Duration retention) {}
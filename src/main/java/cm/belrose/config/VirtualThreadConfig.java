@@ -0,0 +1,63 @@
+package cm.belrose.config;
+
+import cm.belrose.controller.UserChangeController;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Virtual-thread execution mode.
+ * <p>
+ * Enabled with spring.threads.virtual.enabled=true (see application-virtual-threads.yaml).
+ * Spring Boot then serves every Tomcat request, and so every @Transactional UserService call,
+ * on its own virtual thread, and runs @Async/task executors on virtual threads too.
+ * This configuration only adds what Spring Boot doesn't: the DatabaseBulkheadInterceptor
+ * in front of /api/users, sized from the actual size of the (primary) connection pool and
+ * {@link VirtualThreadProperties}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@EnableConfigurationProperties(VirtualThreadProperties.class)
+@Slf4j
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+  private final VirtualThreadProperties properties;
+  private final DataSource dataSource;
+
+  public VirtualThreadConfig(VirtualThreadProperties properties, DataSource dataSource) {
+    this.properties = properties;
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    int poolSize = primaryPoolSize();
+    int maxConcurrentRequests = properties.maxConcurrentRequests(poolSize);
+    log.info("Database bulkhead: {} concurrent requests for {} connections",
+        maxConcurrentRequests, poolSize);
+    registry.addInterceptor(new DatabaseBulkheadInterceptor(
+            maxConcurrentRequests, properties.maxWait()))
+        .addPathPatterns("/api/users", "/api/users/**")
+        // Long polls and subscriptions wait for changes, not for the database
+        .excludePathPatterns(UserChangeController.PATH);
+  }
+
+  /**
+   * maximum-pool-size of the primary pool, once set (the datasource bean is initialized, so
+   * DataSourcePoolConfig has resized it already). The routing datasource of the replicas
+   * unwraps to the primary pool too.
+   */
+  private int primaryPoolSize() {
+    try {
+      return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+    } catch (SQLException ex) {
+      throw new IllegalStateException("The bulkhead is sized from a Hikari connection pool", ex);
+    }
+  }
+}
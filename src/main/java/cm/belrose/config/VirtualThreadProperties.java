@@ -0,0 +1,29 @@
+package cm.belrose.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Guards applied when requests run on virtual threads, bound from "app.virtual-threads".
+ * <p>
+ * With virtual threads there is no thread pool limiting concurrency any more: thousands of
+ * requests can reach the connection pool at the same time and pile up until they time out.
+ * The bulkhead caps how many /api/users requests may be in flight at once:
+ * max concurrent requests = maximum-pool-size × requests-per-connection, so it follows the
+ * pool when the pool is resized (e.g. from the CPU count, see DataSourcePoolConfig).
+ *
+ * @param requestsPerConnection requests allowed in flight per pooled connection (a request
+ *                              only holds a connection for part of its time; a small factor
+ *                              keeps the pool busy without queueing on it for long)
+ * @param maxWait               how long a request may wait for a slot before being rejected (503)
+ */
+@ConfigurationProperties(prefix = "app.virtual-threads")
+public record VirtualThreadProperties(int requestsPerConnection, Duration maxWait) {
+
+  /**
+   * The bulkhead size for a connection pool of the given size.
+   */
+  public int maxConcurrentRequests(int poolSize) {
+    return poolSize * requestsPerConnection;
+  }
+}
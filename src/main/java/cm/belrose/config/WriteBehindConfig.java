@@ -0,0 +1,15 @@
+package cm.belrose.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Write-behind configuration (see UserWriteBehindService), bound from "app.write-behind".
+ * <p>
+ * UserWriteBehindService is always created so that it can be used (and tested) directly;
+ * app.write-behind.enabled only decides whether UserController sends mutations through it.
+ */
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindConfig {
+}
@@ -0,0 +1,38 @@
+package cm.belrose.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Write-behind mode of the user mutations (see UserWriteBehindService),
+ * bound from "app.write-behind".
+ *
+ * @param enabled       route POST/PUT/PATCH user mutations through the write queue
+ * @param queueCapacity mutations allowed to wait; when full, callers wait up to offerTimeout
+ * @param batchSize     mutations committed together, at most
+ * @param maxDelay      how long the writer waits for a batch to fill up before committing it
+ * @param offerTimeout  how long a caller waits for room in a full queue before being
+ *                      rejected (503)
+ * @param durability    when the caller gets its answer (see {@link Durability})
+ */
+@ConfigurationProperties(prefix = "app.write-behind")
+public record WriteBehindProperties(boolean enabled, int queueCapacity, int batchSize,
+    Duration maxDelay, Duration offerTimeout, Durability durability) {
+
+  /**
+   * What a successful response guarantees.
+   */
+  public enum Durability {
+    /**
+     * 202 Accepted as soon as the mutation is queued: lowest latency, but the mutation is lost
+     * if the application stops before it is committed, and its errors (duplicate email,
+     * unknown user...) are only logged.
+     */
+    ACCEPTED,
+    /**
+     * The usual response (201/200, errors included), once the group commit containing the
+     * mutation succeeded.
+     */
+    COMMITTED
+  }
+}
@@ -0,0 +1,25 @@
+package cm.belrose.controller;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Media types of the user API that have no constant in {@link MediaType}.
+ */
+public final class ApiMediaTypes {
+
+  /**
+   * Smile, Jackson's binary JSON format.
+   */
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+  public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+  /**
+   * CBOR sequence (RFC 8742): CBOR items written one after the other, the binary
+   * counterpart of NDJSON.
+   */
+  public static final String CBOR_SEQ_VALUE = "application/cbor-seq";
+  public static final MediaType CBOR_SEQ = MediaType.parseMediaType(CBOR_SEQ_VALUE);
+
+  private ApiMediaTypes() {
+  }
+}
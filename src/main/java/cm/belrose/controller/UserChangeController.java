@@ -0,0 +1,77 @@
+package cm.belrose.controller;
+
+import cm.belrose.dto.UserChangeCursor;
+import cm.belrose.dto.UserChangeEvent;
+import cm.belrose.service.UserChangeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * REST Controller for the user change stream: consumers sync incrementally instead of
+ * re-reading GET /api/users.
+ * 1. GET /api/users/changes/latest gives the current position, then the users are copied
+ * 2. GET /api/users/changes?since={position} returns the next changes (long poll: it waits
+ *    up to app.changes.long-poll-timeout for one), the last "seq" is the next position
+ * or, with "Accept: text/event-stream", changes are pushed as Server-Sent Events
+ * 410 Gone means the consumer was away for longer than app.changes.retention: back to 1.
+ * Annotations explained:
+ * - @RestController: Combines @Controller and @ResponseBody (returns data, not views)
+ * - @RequestMapping: Base path for all endpoints in this controller
+ * - @RequiredArgsConstructor: Lombok generates constructor for dependency injection
+ */
+@RestController
+@RequestMapping(UserChangeController.PATH)
+@RequiredArgsConstructor
+public class UserChangeController {
+
+  public static final String PATH = "/api/users/changes";
+
+  private final UserChangeService userChangeService;
+
+  /**
+   * Get the position of the latest change.
+   * GET /api/users/changes/latest
+   *
+   * @return { "seq": position }
+   */
+  @GetMapping("/latest")
+  public UserChangeCursor getLatestChange() {
+    return new UserChangeCursor(userChangeService.getLastSeq());
+  }
+
+  /**
+   * Get the changes after a position, waiting for one if there is none yet.
+   * GET /api/users/changes?since=42&limit=100
+   *
+   * @param since the last position the consumer has applied
+   * @param limit maximum number of changes (default 100, at most 1000)
+   * @return the next changes in order, [] if none came before the timeout,
+   *     410 if they are no longer kept
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public DeferredResult<List<UserChangeEvent>> getChanges(@RequestParam long since,
+      @RequestParam(required = false) Integer limit) {
+    return userChangeService.awaitChanges(since, limit);
+  }
+
+  /**
+   * Subscribe to the changes as Server-Sent Events ("user-change" events, ID = position).
+   * GET /api/users/changes?since=42 with "Accept: text/event-stream"
+   *
+   * @param since       the last position the consumer has applied; latest if absent
+   * @param lastEventId sent by reconnecting EventSource clients, wins over since
+   * @return the event stream, 410 if the changes are no longer kept
+   */
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+    long position = lastEventId != null ? lastEventId
+        : since != null ? since : userChangeService.getLastSeq();
+    return userChangeService.subscribe(position);
+  }
+}
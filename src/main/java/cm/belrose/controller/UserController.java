@@ -1,20 +1,54 @@
 package cm.belrose.controller;
 
+import cm.belrose.dto.BulkDeactivationResult;
+import cm.belrose.dto.BulkImportResult;
+import cm.belrose.dto.UserSearch;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.exception.VersionMismatchException;
 import cm.belrose.model.User;
+import cm.belrose.service.UserImportService;
 import cm.belrose.service.UserService;
+import cm.belrose.service.UserWriteBehindService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 /**
  * REST Controller for User operations.
  * Handles HTTP requests and returns HTTP responses.
  * This is the presentation layer - it doesn't contain business logic.
+ * Bodies are JSON by default. With jackson-dataformat-cbor and jackson-dataformat-smile on the
+ * classpath, Spring MVC also registers the CBOR and Smile HttpMessageConverters, so every
+ * endpoint answers "Accept: application/cbor" / "Accept: application/x-jackson-smile" and reads
+ * bodies sent with those Content-Types: same data model, smaller payloads, cheaper parsing
+ * (binary numbers, length-prefixed strings, back-referenced field names in Smile).
  * Annotations explained:
  * - @RestController: Combines @Controller and @ResponseBody (returns data, not views)
  * - @RequestMapping: Base path for all endpoints in this controller
@@ -27,7 +61,23 @@ import java.util.List;
 @Slf4j
 public class UserController {
 
+  /**
+   * RFC 7240 request header: "Prefer: return=minimal" asks for no response body.
+   */
+  private static final String PREFER = "Prefer";
+  private static final String PREFERENCE_APPLIED = "Preference-Applied";
+  private static final String RETURN_MINIMAL = "return=minimal";
+
+  /**
+   * Writes the CBOR sequence of GET /stream. Not a bean on purpose: an extra ObjectMapper bean
+   * could make Spring Boot back off from its own (JSON) mapper.
+   */
+  private static final CBORMapper CBOR_MAPPER = CBORMapper.builder().build();
+
   private final UserService userService;
+  private final UserImportService userImportService;
+  private final UserWriteBehindService userWriteBehindService;
+  private final JsonMapper jsonMapper;
 
   /**
    * Create a new user.
@@ -35,41 +85,229 @@ public class UserController {
    * @Valid triggers validation on the User object (@NotBlank, @Email, etc.)
    * If validation fails, MethodArgumentNotValidException is thrown and handled by GlobalExceptionHandler
    *
+   * With app.write-behind.enabled, the user is created by the next group commit
+   * (see writeBehind()).
+   *
    * @param user the user to create (from request body)
-   * @return HTTP 201 Created with the created user
+   * @return HTTP 201 Created with the created user, or HTTP 202 Accepted (write-behind)
    */
   @PostMapping
   public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
-    log.info("REST request to create user: {}", user.getEmail());
+    log.debug("REST request to create user");
+    if (userWriteBehindService.isEnabled()) {
+      return writeBehind(userWriteBehindService.createUser(user),
+          createdUser -> new ResponseEntity<>(createdUser, HttpStatus.CREATED));
+    }
     User createdUser = userService.createUser(user);
     return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
   }
 
+  /**
+   * Create many users at once from a JSON array (or the same array in CBOR or Smile).
+   * POST /api/users/bulk
+   * Rows are validated one by one (no @Valid here): invalid or duplicate rows are reported
+   * in the result instead of failing the whole request.
+   *
+   * @param users the users to create
+   * @return HTTP 200 OK with one result per row
+   */
+  @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_CBOR_VALUE, ApiMediaTypes.SMILE_VALUE})
+  public ResponseEntity<BulkImportResult> importUsers(@RequestBody List<User> users) {
+    log.info("REST request to import {} users", users.size());
+    return ResponseEntity.ok(userImportService.importUsers(users.iterator()));
+  }
+
+  /**
+   * Create many users at once from an NDJSON body (one JSON user per line).
+   * POST /api/users/bulk
+   * The body is parsed lazily while the import runs, so very large files
+   * are never fully loaded in memory.
+   *
+   * @param body the raw request body
+   * @return HTTP 200 OK with one result per row
+   */
+  @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<BulkImportResult> importUsersNdjson(InputStream body) {
+    log.info("REST request to import users from NDJSON");
+    try (MappingIterator<User> users = jsonMapper.readerFor(User.class).readValues(body)) {
+      return ResponseEntity.ok(userImportService.importUsers(users));
+    }
+  }
+
   /**
    * Get user by ID.
    * GET /api/users/{id}
    * @PathVariable extracts {id} from URL path
    * Example: GET /api/users/5 → id = 5
+   * The response carries the user version as ETag (e.g. ETag: "3").
+   * A client sending it back in If-None-Match gets HTTP 304 Not Modified without body
+   * while the user is unchanged: Spring compares the ETag of the returned ResponseEntity
+   * with the request header before writing anything.
+   *
    * @param id the user ID from URL path
-   * @return HTTP 200 OK with the user
+   * @return HTTP 200 OK with the user, or HTTP 304 Not Modified
    */
   @GetMapping("/{id}")
-  public ResponseEntity<User> getUserById(@PathVariable Long id) {
-    log.info("REST request to get user with ID: {}", id);
-    User user = userService.getUserById(id);
+  public ResponseEntity<UserSummary> getUserById(@PathVariable Long id) {
+    log.debug("REST request to get user with ID: {}", id);
+    UserSummary user = userService.getUserById(id);
+    return ResponseEntity.ok().eTag(etag(user.version())).body(user);
+  }
+
+  /**
+   * Get only some fields of a user (sparse fieldset).
+   * GET /api/users/{id}?fields=id,email
+   * Only the requested columns are selected from the database.
+   * Unknown fields are rejected with HTTP 400.
+   *
+   * @param id     the user ID from URL path
+   * @param fields comma separated field names (id, name, email, active)
+   * @return HTTP 200 OK with the requested fields of the user
+   */
+  @GetMapping(value = "/{id}", params = "fields")
+  public ResponseEntity<Map<String, Object>> getUserFieldsById(@PathVariable Long id,
+      @RequestParam String fields) {
+    log.debug("REST request to get fields {} of user with ID: {}", fields, id);
+    return ResponseEntity.ok(userService.getUserFields(id, fields));
+  }
+
+  /**
+   * Get user by email.
+   * GET /api/users/by-email?email=john@example.com
+   * The email is passed as a query parameter: emails may contain characters
+   * that don't belong in a URL path segment.
+   *
+   * @param email the user email
+   * @return HTTP 200 OK with the user
+   */
+  @GetMapping("/by-email")
+  public ResponseEntity<UserSummary> getUserByEmail(@RequestParam String email) {
+    log.debug("REST request to get user by email");
+    UserSummary user = userService.getUserByEmail(email);
     return ResponseEntity.ok(user);
   }
 
   /**
-   * Get all users.
-   * GET /api/users
-   * @return HTTP 200 OK with list of all users
+   * Get users, one page at a time.
+   * GET /api/users?limit=100&after=42
+   * Keyset pagination: "after" is the ID of the last user of the previous page.
+   * When the page is full, a Link header points to the next one:
+   * Link: <http://host/api/users?after=142&limit=100>; rel="next"
+   *
+   * @param after the ID of the last user already received (optional, first page when absent)
+   * @param limit the page size (optional, defaults to 100, capped at 1000)
+   * @return HTTP 200 OK with one page of users
    */
   @GetMapping
-  public ResponseEntity<List<User>> getAllUsers() {
-    log.info("REST request to get all users");
-    List<User> users = userService.getAllUsers();
-    return ResponseEntity.ok(users);
+  public ResponseEntity<List<UserSummary>> getAllUsers(@RequestParam(required = false) Long after,
+      @RequestParam(required = false) Integer limit) {
+    log.debug("REST request to get users after ID: {}", after);
+    int pageSize = UserService.pageSize(limit);
+    List<UserSummary> users = userService.getUsers(after, pageSize);
+    Long lastId = users.isEmpty() ? null : users.getLast().id();
+    return page(users, pageSize, lastId);
+  }
+
+  /**
+   * Get users, one page at a time, with only some fields (sparse fieldset).
+   * GET /api/users?fields=id,email&limit=100&after=42
+   * Only the requested columns are selected from the database.
+   * "id" is always included: it is the cursor of the next page.
+   *
+   * @param after  the ID of the last user already received (optional)
+   * @param limit  the page size (optional, defaults to 100, capped at 1000)
+   * @param fields comma separated field names (id, name, email, active)
+   * @return HTTP 200 OK with one page of users, reduced to the requested fields
+   */
+  @GetMapping(params = "fields")
+  public ResponseEntity<List<Map<String, Object>>> getAllUsersFields(
+      @RequestParam(required = false) Long after,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam String fields) {
+    log.debug("REST request to get fields {} of users after ID: {}", fields, after);
+    int pageSize = UserService.pageSize(limit);
+    List<Map<String, Object>> users = userService.getUsersFields(after, pageSize, fields);
+    Long lastId = users.isEmpty() ? null : (Long) users.getLast().get("id");
+    return page(users, pageSize, lastId);
+  }
+
+  /**
+   * Search users, one page at a time.
+   * GET /api/users/search?q=ohn&email=jo&name=doe&active=true&limit=100&after=42
+   * All filters are optional (see UserSearch): text in name or email, email prefix, name part,
+   * active flag. The text query is answered by an in-memory trigram index, the other filters
+   * by indexed columns; pagination works like GET /api/users
+   * (keyset on ID, Link header to the next page).
+   *
+   * @param search the filters, bound from the query parameters
+   * @param after  the ID of the last user already received (optional)
+   * @param limit  the page size (optional, defaults to 100, capped at 1000)
+   * @return HTTP 200 OK with one page of matching users
+   */
+  @GetMapping("/search")
+  public ResponseEntity<List<UserSummary>> searchUsers(UserSearch search,
+      @RequestParam(required = false) Long after,
+      @RequestParam(required = false) Integer limit) {
+    log.debug("REST request to search users after ID: {}", after);
+    int pageSize = UserService.pageSize(limit);
+    List<UserSummary> users = userService.searchUsers(search, after, pageSize);
+    Long lastId = users.isEmpty() ? null : users.getLast().id();
+    return page(users, pageSize, lastId);
+  }
+
+  /**
+   * Stream all users as NDJSON (one JSON document per line), a CBOR sequence or a JSON array.
+   * GET /api/users/stream
+   * Users are serialized straight to the servlet output stream while they are read from the
+   * database cursor: neither the server nor the client needs to hold the whole table in memory,
+   * and the response goes out in chunks (Transfer-Encoding: chunked, gzip'ed on the fly
+   * when the client accepts it, see server.compression).
+   * One handler for all formats: the format is picked from the Accept header
+   * (application/cbor-seq, application/json, otherwise NDJSON).
+   *
+   * @param accept the Accept header (optional)
+   * @return HTTP 200 OK with an application/x-ndjson, application/cbor-seq or
+   *     application/json body
+   */
+  @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE,
+      ApiMediaTypes.CBOR_SEQ_VALUE, MediaType.APPLICATION_JSON_VALUE})
+  public ResponseEntity<StreamingResponseBody> streamAllUsers(
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    log.debug("REST request to stream all users");
+    MediaType format = negotiate(accept, MediaType.APPLICATION_NDJSON, ApiMediaTypes.CBOR_SEQ,
+        MediaType.APPLICATION_JSON);
+    StreamingResponseBody body;
+    if (MediaType.APPLICATION_JSON.equals(format)) {
+      body = this::writeJsonArray;
+    } else {
+      ObjectMapper mapper = ApiMediaTypes.CBOR_SEQ.equals(format) ? CBOR_MAPPER : jsonMapper;
+      boolean newLines = MediaType.APPLICATION_NDJSON.equals(format);
+      body = out -> userService.streamAllUsers(user -> writeItem(out, mapper, user, newLines));
+    }
+    return ResponseEntity.ok()
+        .contentType(format)
+        .body(body);
+  }
+
+  /**
+   * Stream all users, reactive variant.
+   * GET /api/users/reactive
+   * Returns a Flux that Spring MVC writes one user at a time, each as soon as it is read,
+   * and asks for the next one only when the previous one has been written (back-pressure):
+   * a slow client slows down the database scan instead of filling the server's memory.
+   * Unlike /stream, no database cursor stays open during the response: users are read in
+   * keyset pages (see UserService#scanAllUsers), the first one small so that the first rows
+   * arrive within milliseconds.
+   *
+   * @return HTTP 200 OK with an application/x-ndjson body, or Server-Sent Events (one "data:"
+   *     event per user) with Accept: text/event-stream
+   */
+  @GetMapping(value = "/reactive", produces = {MediaType.APPLICATION_NDJSON_VALUE,
+      MediaType.TEXT_EVENT_STREAM_VALUE})
+  public Flux<UserSummary> streamAllUsersReactively() {
+    log.debug("REST request to stream all users reactively");
+    return userService.scanAllUsers();
   }
 
   /**
@@ -77,17 +315,25 @@ public class UserController {
    * PUT /api/users/{id}
    * PUT is used for full updates (all fields).
    * PATCH would be for partial updates.
+   * Optional If-Match header (the ETag of a previous GET): the update only happens if the user
+   * is still at that version, otherwise HTTP 412 Precondition Failed (no lost update).
    *
    * @param id the user ID to update
+   * @param ifMatch the expected ETag (optional)
    * @param userDetails the new user details
-   * @return HTTP 200 OK with updated user
+   * @return HTTP 200 OK with updated user and its new ETag, or HTTP 202 Accepted (write-behind)
    */
   @PutMapping("/{id}")
-  public ResponseEntity<User> updateUser(@PathVariable Long id,
+  public ResponseEntity<UserSummary> updateUser(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody User userDetails) {
-    log.info("REST request to update user with ID: {}", id);
-    User updatedUser = userService.updateUser(id, userDetails);
-    return ResponseEntity.ok(updatedUser);
+    log.debug("REST request to update user with ID: {}", id);
+    if (userWriteBehindService.isEnabled()) {
+      return writeBehind(
+          userWriteBehindService.updateUser(id, userDetails, expectedVersion(ifMatch)),
+          UserController::updated);
+    }
+    return updated(userService.updateUser(id, userDetails, expectedVersion(ifMatch)));
   }
 
   /**
@@ -99,7 +345,7 @@ public class UserController {
    */
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-    log.info("REST request to delete user with ID: {}", id);
+    log.debug("REST request to delete user with ID: {}", id);
     userService.deleteUser(id);
     return ResponseEntity.noContent().build();
   }
@@ -108,13 +354,174 @@ public class UserController {
    * Deactivate user.
    * PATCH /api/users/{id}/deactivate
    * PATCH is used for partial updates (only changing active status).
+   * Honors If-Match like PUT.
+   * The deactivation itself is a single UPDATE statement. The user is then read back for the
+   * response, unless the client sends "Prefer: return=minimal": HTTP 204 without body.
    * @param id the user ID to deactivate
-   * @return HTTP 200 OK with deactivated user
+   * @param ifMatch the expected ETag (optional)
+   * @param prefer the Prefer header (optional)
+   * @return HTTP 200 OK with deactivated user and its new ETag, HTTP 204 No Content,
+   *     or HTTP 202 Accepted (write-behind)
    */
   @PatchMapping("/{id}/deactivate")
-  public ResponseEntity<User> deactivateUser(@PathVariable Long id) {
-    log.info("REST request to deactivate user with ID: {}", id);
-    User deactivatedUser = userService.deactivateUser(id);
-    return ResponseEntity.ok(deactivatedUser);
+  public ResponseEntity<UserSummary> deactivateUser(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = PREFER, required = false) String prefer) {
+    log.debug("REST request to deactivate user with ID: {}", id);
+    if (userWriteBehindService.isEnabled()) {
+      return writeBehind(userWriteBehindService.deactivateUser(id, expectedVersion(ifMatch)),
+          ignored -> deactivated(id, prefer));
+    }
+    userService.deactivateUser(id, expectedVersion(ifMatch));
+    return deactivated(id, prefer);
+  }
+
+  /**
+   * Deactivate many users at once.
+   * PATCH /api/users/deactivate
+   * Request body: a JSON array of user IDs, e.g. [1, 2, 3].
+   * Unknown IDs are reported in the result, not treated as an error.
+   * @param ids the IDs of the users to deactivate
+   * @return HTTP 200 OK with the number of deactivated users
+   */
+  @PatchMapping("/deactivate")
+  public ResponseEntity<BulkDeactivationResult> deactivateUsers(@RequestBody List<Long> ids) {
+    log.info("REST request to deactivate {} users", ids.size());
+    return ResponseEntity.ok(userService.deactivateUsers(ids));
+  }
+
+  /**
+   * Response of a deactivation: the user read back, or nothing with "Prefer: return=minimal".
+   */
+  private ResponseEntity<UserSummary> deactivated(Long id, String prefer) {
+    if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+      return ResponseEntity.noContent().header(PREFERENCE_APPLIED, RETURN_MINIMAL).build();
+    }
+    UserSummary deactivatedUser = userService.getUserById(id);
+    return ResponseEntity.ok().eTag(etag(deactivatedUser.version())).body(deactivatedUser);
+  }
+
+  /**
+   * Response of an update: the user with its new ETag.
+   */
+  private static ResponseEntity<UserSummary> updated(UserSummary updatedUser) {
+    return ResponseEntity.ok().eTag(etag(updatedUser.version())).body(updatedUser);
+  }
+
+  /**
+   * Response of a mutation sent through the write-behind queue.
+   * With durability ACCEPTED: HTTP 202 Accepted, without body, as soon as it is queued.
+   * With durability COMMITTED: the usual response once its group commit succeeded, or the
+   * usual error (its exception is rethrown for GlobalExceptionHandler).
+   * A full queue is HTTP 503 either way.
+   */
+  private <T, R> ResponseEntity<R> writeBehind(CompletableFuture<T> write,
+      Function<T, ResponseEntity<R>> committed) {
+    if (userWriteBehindService.acceptsBeforeCommit()) {
+      return ResponseEntity.accepted().build();
+    }
+    try {
+      return committed.apply(write.join());
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Build a page response: when the page is full, a Link header points to the next one.
+   */
+  private static <T> ResponseEntity<List<T>> page(List<T> users, int pageSize, Long lastId) {
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (users.size() == pageSize) {
+      String next = ServletUriComponentsBuilder.fromCurrentRequest()
+          .replaceQueryParam("after", lastId)
+          .replaceQueryParam("limit", pageSize)
+          .toUriString();
+      response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+    }
+    return response.body(users);
+  }
+
+  /**
+   * The ETag of a user: its version, as a strong entity tag ("3").
+   */
+  private static String etag(Long version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * The version expected by an If-Match header, or null when any version will do
+   * (no header, or "*").
+   * A tag that can't be one of our versions (weak, several tags, not a number)
+   * can never match: HTTP 412.
+   */
+  private static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null) {
+      return null;
+    }
+    List<ETag> tags = ETag.parse(ifMatch);
+    if (tags.size() == 1 && tags.getFirst().isWildcard()) {
+      return null;
+    }
+    if (tags.size() != 1 || tags.getFirst().weak()) {
+      throw new VersionMismatchException("If-Match must be a single strong ETag: " + ifMatch);
+    }
+    try {
+      return Long.valueOf(tags.getFirst().tag());
+    } catch (NumberFormatException ex) {
+      throw new VersionMismatchException("Unknown ETag: " + ifMatch, ex);
+    }
+  }
+
+  /**
+   * The first of the {@code supported} types accepted by the client, highest quality first;
+   * the first supported type when the client accepts anything (or sent no Accept header).
+   */
+  private static MediaType negotiate(String accept, MediaType... supported) {
+    if (accept == null) {
+      return supported[0];
+    }
+    List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+    accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+    for (MediaType type : accepted) {
+      for (MediaType candidate : supported) {
+        if (type.getQualityValue() > 0 && type.includes(candidate)) {
+          return candidate;
+        }
+      }
+    }
+    return supported[0];
+  }
+
+  /**
+   * Write all users as one JSON array, element by element.
+   * The generator keeps a small buffer and writes it to the output stream whenever it fills up:
+   * the array is never built in memory.
+   */
+  private void writeJsonArray(OutputStream out) {
+    // nonClosing: the servlet container owns the response stream
+    try (JsonGenerator generator = jsonMapper.createGenerator(StreamUtils.nonClosing(out))) {
+      generator.writeStartArray();
+      userService.streamAllUsers(generator::writePOJO);
+      generator.writeEndArray();
+    }
+  }
+
+  /**
+   * Write one item of a streamed response: an NDJSON line or a CBOR sequence item.
+   */
+  private static void writeItem(OutputStream out, ObjectMapper mapper, UserSummary user,
+      boolean newLine) {
+    try {
+      out.write(mapper.writeValueAsBytes(user));
+      if (newLine) {
+        out.write('\n');
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package cm.belrose.controller;
+
+import cm.belrose.dto.ExportJob;
+import cm.belrose.service.UserExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * REST Controller for user exports: full dumps of the users table as CSV or NDJSON.
+ * An export can take a while on a large table, so it is asynchronous:
+ * 1. POST /api/users/exports?format=CSV starts it: 202 Accepted, Location = the job URL
+ * 2. GET /api/users/exports/{id} until "status" is COMPLETED (or FAILED)
+ * 3. GET /api/users/exports/{id}/file downloads the file
+ * The file is sent without copying it through the JVM heap: with Tomcat's sendfile, the
+ * connector hands the file to the kernel; otherwise FileChannel.transferTo() copies it to the
+ * response channel (zero-copy when the OS supports it).
+ * Annotations explained:
+ * - @RestController: Combines @Controller and @ResponseBody (returns data, not views)
+ * - @RequestMapping: Base path for all endpoints in this controller
+ * - @RequiredArgsConstructor: Lombok generates constructor for dependency injection
+ * - @Slf4j: Lombok provides logger
+ */
+@RestController
+@RequestMapping("/api/users/exports")
+@RequiredArgsConstructor
+@Slf4j
+public class UserExportController {
+
+  /**
+   * Request attributes of Tomcat's sendfile support (NIO / NIO2 connectors, when
+   * "useSendfile" is on, which is the default).
+   */
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final UserExportService userExportService;
+
+  /**
+   * Start an export of all users.
+   * POST /api/users/exports?format=CSV (or NDJSON)
+   *
+   * @param format file format, CSV by default
+   * @return the new job with 202 Accepted and its URL in the Location header,
+   *     503 if too many exports are already running
+   */
+  @PostMapping
+  public ResponseEntity<ExportJob> startExport(
+      @RequestParam(defaultValue = "CSV") ExportJob.Format format) {
+    ExportJob job = userExportService.startExport(format);
+    URI location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+        .path("/{id}")
+        .buildAndExpand(job.id())
+        .toUri();
+    return ResponseEntity.accepted().location(location).body(job);
+  }
+
+  /**
+   * Get the status of an export.
+   * GET /api/users/exports/{id}
+   *
+   * @param id job ID
+   * @return the job (status, rows and bytes written so far), 404 if unknown or expired
+   */
+  @GetMapping("/{id}")
+  public ExportJob getExport(@PathVariable String id) {
+    return userExportService.getJob(id);
+  }
+
+  /**
+   * Download the file of a completed export.
+   * GET /api/users/exports/{id}/file
+   *
+   * @param id job ID
+   * @throws IOException if the file can't be read or the client went away
+   */
+  @GetMapping("/{id}/file")
+  public void downloadExport(@PathVariable String id, HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    // Throws 404 / 409 before anything is written
+    Path file = userExportService.getFile(id);
+    ExportJob job = userExportService.getJob(id);
+
+    try (FileChannel channel = FileChannel.open(file)) {
+      long size = channel.size();
+      response.setContentType(job.format().mediaType());
+      response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+      response.setContentLengthLong(size);
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+          .filename(file.getFileName().toString())
+          .build()
+          .toString());
+
+      if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+        // Tomcat writes the file itself after this method returns
+        request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, size);
+        return;
+      }
+
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long position = 0;
+      while (position < size) {
+        position += channel.transferTo(position, size - position, out);
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package cm.belrose.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs read-only transactions against the primary instead of a replica.
+ * <p>
+ * For reads that must see the latest committed writes, e.g. the loads of the user cache: a
+ * row reloaded from a lagging replica right after a write would be cached, stale, for the
+ * whole TTL. ReplicaDataSource hands out primary connections while such a read runs on the
+ * current thread. Without replicas, it changes nothing.
+ */
+public final class PrimaryReads {
+
+  private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+  private PrimaryReads() {
+  }
+
+  /**
+   * Run the given reads on the primary (transactions must start inside, connections are
+   * fetched lazily on the first statement).
+   */
+  public static <T> T call(Supplier<T> reads) {
+    if (isActive()) {
+      return reads.get();
+    }
+    ACTIVE.set(Boolean.TRUE);
+    try {
+      return reads.get();
+    } finally {
+      ACTIVE.remove();
+    }
+  }
+
+  /**
+   * Whether reads of the current thread must go to the primary.
+   */
+  public static boolean isActive() {
+    return ACTIVE.get() != null;
+  }
+}
@@ -0,0 +1,162 @@
+package cm.belrose.datasource;
+
+import cm.belrose.config.ReplicaProperties.Selection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Hands out connections to read replicas, falling back to the primary.
+ * <p>
+ * Used as the read-only datasource of a LazyConnectionDataSourceProxy (see
+ * ReplicaDataSourceConfig): it is only asked for connections of read-only transactions.
+ * A replica is chosen round-robin or by lowest connection latency (exponentially weighted
+ * moving average of the time to get a connection). A replica that fails to hand out a
+ * connection is skipped for a while, the next one is tried; when none is left, the primary
+ * serves the read. Reads that must see the latest writes (see PrimaryReads) skip the replicas.
+ * <p>
+ * Every connection is counted in "user.datasource.routed" with the "target" tag: the replica
+ * name, or "primary" for fallbacks and primary reads.
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+  private final List<Replica> replicas;
+  private final DataSource primary;
+  private final Selection selection;
+  private final Duration retryAfter;
+  private final Counter primaryReads;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+
+  /**
+   * @param replicas replica datasources by name, closed with this datasource
+   */
+  public ReplicaDataSource(List<NamedDataSource> replicas, DataSource primary,
+      Selection selection, Duration retryAfter, MeterRegistry meterRegistry) {
+    this.replicas = replicas.stream()
+        .map(replica -> new Replica(replica.name(), replica.dataSource(),
+            meterRegistry.counter("user.datasource.routed", "target", replica.name())))
+        .toList();
+    this.primary = primary;
+    this.selection = selection;
+    this.retryAfter = retryAfter;
+    this.primaryReads = meterRegistry.counter("user.datasource.routed", "target", "primary");
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (PrimaryReads.isActive()) {
+      primaryReads.increment();
+      return primary.getConnection();
+    }
+    for (Replica replica : candidates()) {
+      if (!replica.isAvailable()) {
+        continue;
+      }
+      try {
+        return replica.connect();
+      } catch (SQLException ex) {
+        replica.markDown(retryAfter);
+        log.warn("Replica {} unavailable for {}: {}", replica.name, retryAfter, ex.getMessage());
+      }
+    }
+    primaryReads.increment();
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Replicas use the configured credentials");
+  }
+
+  /**
+   * Replicas in the order they should be tried (none: every read goes to the primary).
+   */
+  private List<Replica> candidates() {
+    if (replicas.isEmpty()) {
+      return List.of();
+    }
+    if (selection == Selection.LEAST_LATENCY) {
+      List<Replica> byLatency = new ArrayList<>(replicas);
+      byLatency.sort(Comparator.comparingLong(Replica::latencyNanos));
+      return byLatency;
+    }
+    int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+    List<Replica> rotated = new ArrayList<>(replicas.size());
+    rotated.addAll(replicas.subList(first, replicas.size()));
+    rotated.addAll(replicas.subList(0, first));
+    return rotated;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof Closeable closeable) {
+        closeable.close();
+      }
+    }
+  }
+
+  /**
+   * A replica datasource and its name (pool name, metrics tag).
+   */
+  public record NamedDataSource(String name, DataSource dataSource) {}
+
+  private static final class Replica {
+
+    /**
+     * Weight of the newest sample in the latency average (1/8).
+     */
+    private static final int SMOOTHING_SHIFT = 3;
+
+    private final String name;
+    private final DataSource dataSource;
+    private final Counter routed;
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile boolean down;
+    private volatile long downUntil;
+
+    private Replica(String name, DataSource dataSource, Counter routed) {
+      this.name = name;
+      this.dataSource = dataSource;
+      this.routed = routed;
+    }
+
+    Connection connect() throws SQLException {
+      long start = System.nanoTime();
+      Connection connection = dataSource.getConnection();
+      long latency = System.nanoTime() - start;
+      latencyNanos.updateAndGet(average ->
+          average + ((latency - average) >> SMOOTHING_SHIFT));
+      routed.increment();
+      down = false;
+      return connection;
+    }
+
+    long latencyNanos() {
+      return latencyNanos.get();
+    }
+
+    boolean isAvailable() {
+      return !down || System.nanoTime() - downUntil >= 0;
+    }
+
+    void markDown(Duration duration) {
+      downUntil = System.nanoTime() + duration.toNanos();
+      down = true;
+    }
+  }
+}
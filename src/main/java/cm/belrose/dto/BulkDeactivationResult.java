@@ -0,0 +1,22 @@
+package cm.belrose.dto;
+
+/**
+ * Result of a bulk deactivation (PATCH /api/users/deactivate).
+ * <p>
+ * Example:
+ * {
+ *   "requested": 3,
+ *   "deactivated": 2,
+ *   "notFound": 1
+ * }
+ *
+ * @param requested   number of distinct IDs in the request
+ * @param deactivated number of users found and deactivated (already inactive users included)
+ * @param notFound    number of IDs that matched no user
+ */
+public record BulkDeactivationResult(int requested, int deactivated, int notFound) {
+
+  public static BulkDeactivationResult of(int requested, int deactivated) {
+    return new BulkDeactivationResult(requested, deactivated, requested - deactivated);
+  }
+}
@@ -0,0 +1,60 @@
+package cm.belrose.dto;
+
+import java.util.List;
+
+/**
+ * Result report of a bulk user import (POST /api/users/bulk).
+ * <p>
+ * Contains one {@link RowResult} per submitted row, in submission order, plus totals.
+ * Example:
+ * {
+ *   "total": 3,
+ *   "created": 2,
+ *   "failed": 1,
+ *   "rows": [
+ *     { "index": 0, "email": "john@example.com", "status": "CREATED", "id": 1, "message": null },
+ *     ...
+ *   ]
+ * }
+ */
+public record BulkImportResult(int total, int created, int failed, List<RowResult> rows) {
+
+  /**
+   * Build the report and compute totals from the row results.
+   */
+  public static BulkImportResult of(List<RowResult> rows) {
+    int created = (int) rows.stream().filter(row -> row.status() == RowStatus.CREATED).count();
+    return new BulkImportResult(rows.size(), created, rows.size() - created, rows);
+  }
+
+  /**
+   * Outcome of a single row.
+   *
+   * @param index   position of the row in the request (0-based)
+   * @param email   email of the submitted user
+   * @param status  what happened to the row
+   * @param id      generated ID when the user was created, null otherwise
+   * @param message reason when the row was rejected, null otherwise
+   */
+  public record RowResult(int index, String email, RowStatus status, Long id, String message) {
+
+    public static RowResult created(int index, String email, Long id) {
+      return new RowResult(index, email, RowStatus.CREATED, id, null);
+    }
+
+    public static RowResult rejected(int index, String email, RowStatus status, String message) {
+      return new RowResult(index, email, status, null, message);
+    }
+  }
+
+  /**
+   * Possible outcomes of a row.
+   * - CREATED: the user was inserted
+   * - INVALID: the row failed bean validation (@NotBlank, @Email, ...)
+   * - DUPLICATE: the email already exists in the database or earlier in the same request
+   * - FAILED: the database rejected the chunk containing this row
+   */
+  public enum RowStatus {
+    CREATED, INVALID, DUPLICATE, FAILED
+  }
+}
@@ -0,0 +1,82 @@
+package cm.belrose.dto;
+
+import java.time.Instant;
+
+/**
+ * State of a user export job (POST /api/users/exports).
+ * <p>
+ * Immutable: every state change replaces the job with a new record.
+ * Example:
+ * {
+ *   "id": "3f6c...",
+ *   "format": "CSV",
+ *   "status": "COMPLETED",
+ *   "rows": 125000,
+ *   "bytes": 6021733,
+ *   "createdAt": "2024-01-15T10:30:00Z",
+ *   "finishedAt": "2024-01-15T10:30:04Z",
+ *   "error": null
+ * }
+ *
+ * @param id         job ID, used in the status and download URLs
+ * @param format     file format
+ * @param status     where the job is
+ * @param rows       users written so far
+ * @param bytes      bytes written so far
+ * @param createdAt  when the job was submitted
+ * @param finishedAt when the job completed or failed, null while it runs
+ * @param error      why the job failed, null otherwise
+ */
+public record ExportJob(String id, Format format, Status status, long rows, long bytes,
+    Instant createdAt, Instant finishedAt, String error) {
+
+  /**
+   * A new job, waiting for an executor thread.
+   */
+  public static ExportJob pending(String id, Format format) {
+    return new ExportJob(id, format, Status.PENDING, 0, 0, Instant.now(), null, null);
+  }
+
+  public ExportJob running(long rows, long bytes) {
+    return new ExportJob(id, format, Status.RUNNING, rows, bytes, createdAt, null, null);
+  }
+
+  public ExportJob completed(long rows, long bytes) {
+    return new ExportJob(id, format, Status.COMPLETED, rows, bytes, createdAt, Instant.now(), null);
+  }
+
+  public ExportJob failed(String error) {
+    return new ExportJob(id, format, Status.FAILED, rows, bytes, createdAt, Instant.now(), error);
+  }
+
+  /**
+   * File formats of an export.
+   */
+  public enum Format {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    Format(String mediaType, String extension) {
+      this.mediaType = mediaType;
+      this.extension = extension;
+    }
+
+    public String mediaType() {
+      return mediaType;
+    }
+
+    public String extension() {
+      return extension;
+    }
+  }
+
+  public enum Status {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+}
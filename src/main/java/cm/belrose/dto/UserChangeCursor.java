@@ -0,0 +1,9 @@
+package cm.belrose.dto;
+
+/**
+ * Position of the latest published user change, returned by GET /api/users/changes/latest:
+ * { "seq": 42 }
+ * A new consumer reads it first, then copies the users (GET /api/users), then follows the
+ * changes since that position: nothing committed in between is missed.
+ */
+public record UserChangeCursor(long seq) {}
@@ -0,0 +1,31 @@
+package cm.belrose.dto;
+
+import cm.belrose.model.UserChange;
+import java.time.Instant;
+
+/**
+ * One published user change, as sent by GET /api/users/changes:
+ * {
+ *   "seq": 42,
+ *   "userId": 1,
+ *   "type": "UPDATED",
+ *   "name": "John Doe",
+ *   "email": "john@example.com",
+ *   "active": true,
+ *   "version": 3,
+ *   "changedAt": "2025-01-01T12:00:00Z"
+ * }
+ * seq is the position in the change stream: consumers pass the last one they applied as
+ * "since" to get the next changes. name, email, active and version are null when the change
+ * didn't know them (a deactivation without If-Match, a deletion): re-read the user if needed.
+ */
+public record UserChangeEvent(Long seq, Long userId, UserChange.Type type, String name,
+    String email, Boolean active, Long version, Instant changedAt) {
+
+  /**
+   * The same change at another stream position.
+   */
+  public UserChangeEvent withSeq(long newSeq) {
+    return new UserChangeEvent(newSeq, userId, type, name, email, active, version, changedAt);
+  }
+}
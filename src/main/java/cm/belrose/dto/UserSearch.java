@@ -0,0 +1,15 @@
+package cm.belrose.dto;
+
+/**
+ * Filters of GET /api/users/search, bound from the query parameters.
+ * <p>
+ * Every filter is optional; the ones that are present must all match.
+ * Example: GET /api/users/search?q=ohn&email=jo&name=doe&active=true
+ *
+ * @param q      text contained in the name or the email, case insensitive
+ *               (answered by the in-memory trigram index when it has at least 3 characters)
+ * @param email  email prefix, case insensitive ("jo" matches "John@example.com")
+ * @param name   part of the name, case insensitive ("doe" matches "John Doe")
+ * @param active active flag
+ */
+public record UserSearch(String q, String email, String name, Boolean active) {}
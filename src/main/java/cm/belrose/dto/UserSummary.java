@@ -0,0 +1,20 @@
+package cm.belrose.dto;
+
+/**
+ * Read-only view of a user, returned by the read endpoints (GET /api/users, GET /api/users/{id}).
+ * <p>
+ * Built directly by the repository queries ("select new cm.belrose.dto.UserSummary(...)"):
+ * Hibernate only reads the columns, without creating managed User entities, so there is
+ * no persistence context entry and no dirty-checking snapshot to pay for.
+ * Being immutable, it is also safe to share from the user cache.
+ * Serialized to the same JSON as the User entity:
+ * {
+ *   "id": 1,
+ *   "name": "John Doe",
+ *   "email": "john@example.com",
+ *   "active": true,
+ *   "version": 0
+ * }
+ * The version is also sent as the ETag of GET /api/users/{id}.
+ */
+public record UserSummary(Long id, String name, String email, boolean active, Long version) {}
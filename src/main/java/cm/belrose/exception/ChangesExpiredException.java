@@ -0,0 +1,13 @@
+package cm.belrose.exception;
+
+/**
+ * Custom exception thrown when a consumer asks for user changes that are no longer kept
+ * (app.changes.retention): it has to copy the users again, then follow the changes.
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 410 response.
+ */
+public class ChangesExpiredException extends RuntimeException {
+
+  public ChangesExpiredException(String message) {
+    super(message);
+  }
+}
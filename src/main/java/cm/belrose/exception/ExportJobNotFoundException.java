@@ -0,0 +1,12 @@
+package cm.belrose.exception;
+
+/**
+ * Custom exception thrown when an export job doesn't exist (or has expired).
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 404 response.
+ */
+public class ExportJobNotFoundException extends RuntimeException {
+
+  public ExportJobNotFoundException(String message) {
+    super(message);
+  }
+}
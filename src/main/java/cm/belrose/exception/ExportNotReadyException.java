@@ -0,0 +1,12 @@
+package cm.belrose.exception;
+
+/**
+ * Custom exception thrown when the file of an export job is downloaded before the job completed.
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 409 response.
+ */
+public class ExportNotReadyException extends RuntimeException {
+
+  public ExportNotReadyException(String message) {
+    super(message);
+  }
+}
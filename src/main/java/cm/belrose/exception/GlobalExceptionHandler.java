@@ -1,5 +1,8 @@
 package cm.belrose.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -7,6 +10,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,10 +21,14 @@ import java.util.Map;
  * @RestControllerAdvice applies to all @RestController classes in the application.
  * Converts exceptions into proper HTTP responses with appropriate status codes and error messages.
  * This centralizes error handling logic instead of repeating it in every controller.
+ * Business exceptions are also counted in the "user.errors" metric (tag "exception").
  */
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+  private final MeterRegistry meterRegistry;
+
   /**
    * Handle UserNotFoundException.
    *
@@ -31,6 +39,7 @@ public class GlobalExceptionHandler {
    */
   @ExceptionHandler(UserNotFoundException.class)
   public ResponseEntity<ErrorResponse> handleUserNotFoundException(UserNotFoundException ex) {
+    countError(ex);
     ErrorResponse error = new ErrorResponse(
         HttpStatus.NOT_FOUND.value(),
         ex.getMessage(),
@@ -49,6 +58,7 @@ public class GlobalExceptionHandler {
    */
   @ExceptionHandler(DuplicateEmailException.class)
   public ResponseEntity<ErrorResponse> handleDuplicateEmailException(DuplicateEmailException ex) {
+    countError(ex);
     ErrorResponse error = new ErrorResponse(
         HttpStatus.BAD_REQUEST.value(),
         ex.getMessage(),
@@ -57,6 +67,150 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
   }
 
+  /**
+   * Handle VersionMismatchException.
+   * <p>
+   * Converts to HTTP 412 Precondition Failed response: the If-Match header no longer matches
+   * the current version. The client should GET the user again and retry its update.
+   *
+   * @param ex the exception
+   * @return error response with 412 status
+   */
+  @ExceptionHandler(VersionMismatchException.class)
+  public ResponseEntity<ErrorResponse> handleVersionMismatchException(
+      VersionMismatchException ex) {
+    countError(ex);
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.PRECONDITION_FAILED.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+  }
+
+  /**
+   * Handle ExportJobNotFoundException.
+   * <p>
+   * Converts to HTTP 404 Not Found response (unknown or expired export job).
+   *
+   * @param ex the exception
+   * @return error response with 404 status
+   */
+  @ExceptionHandler(ExportJobNotFoundException.class)
+  public ResponseEntity<ErrorResponse> handleExportJobNotFoundException(
+      ExportJobNotFoundException ex) {
+    countError(ex);
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.NOT_FOUND.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+  }
+
+  /**
+   * Handle ExportNotReadyException.
+   * <p>
+   * Converts to HTTP 409 Conflict response: the export is still running (or failed),
+   * the client should poll its status until it is COMPLETED.
+   *
+   * @param ex the exception
+   * @return error response with 409 status
+   */
+  @ExceptionHandler(ExportNotReadyException.class)
+  public ResponseEntity<ErrorResponse> handleExportNotReadyException(ExportNotReadyException ex) {
+    countError(ex);
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.CONFLICT.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Handle ChangesExpiredException.
+   * <p>
+   * Converts to HTTP 410 Gone response: the requested changes were purged, the consumer
+   * must copy the users again before following the changes.
+   *
+   * @param ex the exception
+   * @return error response with 410 status
+   */
+  @ExceptionHandler(ChangesExpiredException.class)
+  public ResponseEntity<ErrorResponse> handleChangesExpiredException(
+      ChangesExpiredException ex) {
+    countError(ex);
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.GONE.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return new ResponseEntity<>(error, HttpStatus.GONE);
+  }
+
+  /**
+   * Handle InvalidFieldsException.
+   * <p>
+   * Converts to HTTP 400 Bad Request response.
+   *
+   * @param ex the exception
+   * @return error response with 400 status
+   */
+  @ExceptionHandler(InvalidFieldsException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidFieldsException(InvalidFieldsException ex) {
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.BAD_REQUEST.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * Handle ServiceOverloadedException.
+   * <p>
+   * Converts to HTTP 503 Service Unavailable response.
+   * The Retry-After header (in seconds) tells well-behaved clients when to come back.
+   *
+   * @param ex the exception
+   * @return error response with 503 status
+   */
+  @ExceptionHandler(ServiceOverloadedException.class)
+  public ResponseEntity<ErrorResponse> handleServiceOverloadedException(
+      ServiceOverloadedException ex) {
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.SERVICE_UNAVAILABLE.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+        .body(error);
+  }
+
+  /**
+   * Handle RateLimitExceededException.
+   * <p>
+   * Converts to HTTP 429 Too Many Requests response.
+   * The Retry-After header (in seconds) tells the client when its next request would be allowed.
+   *
+   * @param ex the exception
+   * @return error response with 429 status
+   */
+  @ExceptionHandler(RateLimitExceededException.class)
+  public ResponseEntity<ErrorResponse> handleRateLimitExceededException(
+      RateLimitExceededException ex) {
+    ErrorResponse error = new ErrorResponse(
+        HttpStatus.TOO_MANY_REQUESTS.value(),
+        ex.getMessage(),
+        LocalDateTime.now()
+    );
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+        .body(error);
+  }
+
   /**
    * Handle validation errors (from @Valid annotation).
    * Triggered when request body fails validation (e.g., @NotBlank, @Email).
@@ -103,6 +257,21 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
   }
 
+  /**
+   * Increment the user.errors counter for this exception type.
+   */
+  private void countError(RuntimeException ex) {
+    meterRegistry.counter("user.errors", "exception", ex.getClass().getSimpleName()).increment();
+  }
+
+  /**
+   * Format a Retry-After value: whole seconds, rounded up, at least 1.
+   */
+  private static String retryAfterSeconds(Duration retryAfter) {
+    long millis = retryAfter.toMillis();
+    return String.valueOf(Math.max(1, (millis + 999) / 1000));
+  }
+
   /**
    * Error response DTO (Data Transfer Object).
    * Java 17 record - immutable data class with automatic:
@@ -0,0 +1,12 @@
+package cm.belrose.exception;
+
+/**
+ * Custom exception thrown when a sparse fieldset (?fields=...) names an unknown field.
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 400 response.
+ */
+public class InvalidFieldsException extends RuntimeException {
+
+  public InvalidFieldsException(String message) {
+    super(message);
+  }
+}
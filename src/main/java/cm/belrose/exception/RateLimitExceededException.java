@@ -0,0 +1,23 @@
+package cm.belrose.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Exception thrown when a client has used up its request budget for an endpoint.
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 429 response
+ * with a Retry-After header.
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+  /**
+   * How long until the client's next request would be allowed.
+   */
+  private final Duration retryAfter;
+
+  public RateLimitExceededException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
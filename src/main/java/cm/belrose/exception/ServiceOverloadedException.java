@@ -0,0 +1,24 @@
+package cm.belrose.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Exception thrown when a request is shed because the server is saturated
+ * (e.g. too many requests already waiting for a database connection).
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 503 response
+ * with a Retry-After header.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+  /**
+   * How long the client should wait before retrying.
+   */
+  private final Duration retryAfter;
+
+  public ServiceOverloadedException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,17 @@
+package cm.belrose.exception;
+
+/**
+ * Custom exception thrown when a conditional update (If-Match header) targets a version
+ * of the user that is no longer the current one: someone else modified it in the meantime.
+ * This exception is caught by GlobalExceptionHandler and converted to HTTP 412 response.
+ */
+public class VersionMismatchException extends RuntimeException {
+
+  public VersionMismatchException(String message) {
+    super(message);
+  }
+
+  public VersionMismatchException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -1,11 +1,17 @@
 package cm.belrose.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
@@ -19,24 +25,50 @@ import lombok.NoArgsConstructor;
  *
  * Annotations explained:
  * - @Entity: Marks this class as a JPA entity (database table)
- * - @Table: Specifies the table name (optional, defaults to class name)
+ * - @Table: Specifies the table name (optional, defaults to class name), constraints and indexes
  * - @Data: Lombok annotation that generates getters, setters, toString, equals, and hashCode
  * - @NoArgsConstructor: Lombok generates a no-argument constructor (required by JPA)
  * - @AllArgsConstructor: Lombok generates a constructor with all fields
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+    uniqueConstraints =
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"),
+    indexes = {
+        // "WHERE active = ? AND id > ? ORDER BY id": seek then read in order, no sort
+        @Index(name = "idx_users_active_id", columnList = "active, id"),
+        // case insensitive email prefix search: "WHERE email_lower LIKE 'jo%'" is a range scan
+        @Index(name = "idx_users_email_lower", columnList = "email_lower")
+    })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
+  /**
+   * Number of IDs reserved from the sequence in one round trip.
+   * Must match the "INCREMENT BY" of the users_seq database sequence.
+   */
+  public static final int ID_ALLOCATION_SIZE = 50;
+
+  /**
+   * Name of the unique constraint on users.email.
+   * Named explicitly so a violation can be recognized and reported as a duplicate email.
+   */
+  public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_users_email";
+
   /**
    * Primary key - auto-generated ID
-   * @GeneratedValue with IDENTITY strategy means database generates the ID
+   * @GeneratedValue with SEQUENCE strategy means Hibernate takes IDs from the users_seq sequence.
+   * Unlike IDENTITY, the ID is known before the INSERT runs, so Hibernate can group inserts
+   * into JDBC batches (hibernate.jdbc.batch_size).
+   * allocationSize lets a pooled optimizer hand out 50 IDs per sequence call
+   * (see hibernate.id.optimizer.pooled.preferred in application.yaml).
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
 
   /**
@@ -50,19 +82,42 @@ public class User {
   /**
    * User's email - required and must be unique
    * @Email validates email format
-   * unique = true ensures no duplicate emails in database
+   * The uk_users_email constraint (see @Table) ensures no duplicate emails in database
    */
   @NotBlank(message = "Email is required")
   @Email(message = "Email should be valid")
-  @Column(nullable = false, unique = true)
+  @Column(nullable = false)
   private String email;
 
+  /**
+   * Lower-cased email, computed by the database (generated column) and indexed.
+   * An index on the expression lower(email) can't be declared with JPA, so the expression
+   * gets its own column instead. Never written by Hibernate (insertable/updatable = false)
+   * and not part of the JSON representation.
+   */
+  @Column(name = "email_lower", insertable = false, updatable = false,
+      columnDefinition = "varchar(255) generated always as (lower(email))")
+  @JsonIgnore
+  private String emailLower;
+
   /**
    * User's active status - defaults to true
    */
   @Column
   private boolean active = true;
 
+  /**
+   * Optimistic locking version, incremented by every update.
+   * @Version makes Hibernate add "AND version = ?" to its UPDATE statements, so a concurrent
+   * modification fails instead of being silently overwritten (lost update).
+   * Exposed to HTTP clients as the ETag of the user; READ_ONLY because clients send the
+   * version they expect in the If-Match header, never in the body.
+   */
+  @Version
+  @Column(nullable = false)
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private Long version;
+
   /**
    * Convenience constructor without ID (used when creating new users)
    */
@@ -0,0 +1,93 @@
+package cm.belrose.model;
+
+import cm.belrose.dto.UserSummary;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * A user mutation, written to the 'user_outbox' table in the transaction of the mutation
+ * (transactional outbox): the change is recorded if and only if the mutation commits.
+ * <p>
+ * UserChangePublisher later gives each row its position in the change stream (seq), in the
+ * order rows are published. IDs can't serve as positions: they are taken at INSERT time, so
+ * a transaction that commits late would show up behind positions consumers already passed.
+ *
+ * Annotations explained:
+ * - @Entity / @Table: maps the 'user_outbox' table, with a unique index on the stream position
+ * - @Data / @NoArgsConstructor / @AllArgsConstructor: Lombok accessors and constructors
+ */
+@Entity
+@Table(name = "user_outbox",
+    indexes = @Index(name = "uk_user_outbox_seq", columnList = "seq", unique = true))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+  public enum Type {
+    CREATED, UPDATED, DEACTIVATED, DELETED
+  }
+
+  /**
+   * IDENTITY: one row per mutation, inserted right away - there is no batch to group.
+   */
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "user_id", nullable = false)
+  private Long userId;
+
+  /**
+   * Stored as VARCHAR rather than the database's native enum type: adding a type later
+   * needs no ALTER TABLE.
+   */
+  @Enumerated(EnumType.STRING)
+  @JdbcTypeCode(SqlTypes.VARCHAR)
+  @Column(name = "change_type", nullable = false, length = 16)
+  private Type type;
+
+  /**
+   * New state of the user; null when the mutation didn't know it (deactivation, deletion).
+   */
+  private String name;
+  private String email;
+  private Boolean active;
+  private Long version;
+
+  @Column(name = "changed_at", nullable = false)
+  private Instant changedAt;
+
+  /**
+   * Position in the change stream, null until published.
+   */
+  private Long seq;
+
+  /**
+   * A change whose new state is fully known (creation, update).
+   */
+  public static UserChange of(Type type, UserSummary user) {
+    return new UserChange(null, user.id(), type, user.name(), user.email(), user.active(),
+        user.version(), Instant.now(), null);
+  }
+
+  /**
+   * A change of which only the user and possibly its new version are known.
+   */
+  public static UserChange of(Type type, Long userId, Long version) {
+    return new UserChange(null, userId, type, null, null, null, version, Instant.now(), null);
+  }
+}
@@ -0,0 +1,91 @@
+package cm.belrose.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit that adapts to latency (AIMD, as in TCP congestion control).
+ * <p>
+ * Every completed request is a latency sample: faster than the target, the limit grows by
+ * 1/limit (about +1 per "limit" requests: additive increase); slower, it is cut by 10%
+ * (multiplicative decrease). When the database slows down, requests take longer, the limit
+ * shrinks, and extra requests are rejected at once instead of queueing for connections and
+ * making everyone slower. When latency recovers, the limit grows back.
+ * <p>
+ * Lock-free: the in-flight count and the limit (a double, stored as its bits) are atomics.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long targetLatencyNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong limit;
+
+  public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+      Duration targetLatency) {
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.targetLatencyNanos = targetLatency.toNanos();
+    this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+  }
+
+  /**
+   * Take a slot if fewer requests than the limit are in flight.
+   *
+   * @return false if the request should be shed
+   */
+  public boolean tryAcquire() {
+    int currentLimit = getLimit();
+    while (true) {
+      int current = inFlight.get();
+      if (current >= currentLimit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Give the slot back and adjust the limit to the request latency.
+   */
+  public void release(long latencyNanos) {
+    inFlight.decrementAndGet();
+    limit.updateAndGet(bits -> {
+      double current = Double.longBitsToDouble(bits);
+      double next = latencyNanos > targetLatencyNanos
+          ? current * BACKOFF_RATIO
+          : current + 1.0 / current;
+      return Double.doubleToLongBits(Math.clamp(next, minLimit, maxLimit));
+    });
+  }
+
+  /**
+   * Give the slot back without a latency sample (e.g. long-running streamed responses).
+   */
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  public int getLimit() {
+    return (int) Double.longBitsToDouble(limit.get());
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Back to the initial limit (the in-flight count is left alone).
+   */
+  public void reset() {
+    limit.set(Double.doubleToLongBits(initialLimit));
+  }
+}
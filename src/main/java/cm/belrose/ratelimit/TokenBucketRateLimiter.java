@@ -0,0 +1,68 @@
+package cm.belrose.ratelimit;
+
+import cm.belrose.config.RateLimitProperties.Budget;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets, one per (client, endpoint).
+ * <p>
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (GCRA, the
+ * generic cell rate algorithm - the same decisions as a token bucket, without a refill task):
+ * a request is allowed when the bucket time is no more than (burst - 1) intervals ahead of now,
+ * and pushes it one interval further with a compareAndSet. No lock, no shared counter: requests
+ * of different clients never contend, requests of the same client contend on one CAS.
+ * <p>
+ * Buckets live in a bounded Caffeine cache (concurrent, striped), so a flood of client IDs
+ * can't exhaust memory. A bucket evicted because it was idle was full anyway.
+ */
+public class TokenBucketRateLimiter {
+
+  private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+  private final Cache<BucketKey, AtomicLong> buckets;
+
+  public TokenBucketRateLimiter(long maxClients, Duration idleExpiry) {
+    this.buckets = Caffeine.newBuilder()
+        .maximumSize(maxClients)
+        .expireAfterAccess(idleExpiry)
+        .build();
+  }
+
+  /**
+   * Take one token from the bucket of this client and endpoint.
+   *
+   * @return 0 if the request is allowed, otherwise how long (in nanoseconds) until it would be
+   */
+  public long tryAcquire(String client, String endpoint, Budget budget) {
+    long interval = (long) (NANOS_PER_SECOND / budget.perSecond());
+    long tolerance = interval * (budget.burst() - 1);
+    AtomicLong arrival = buckets.get(new BucketKey(client, endpoint),
+        key -> new AtomicLong(System.nanoTime()));
+
+    while (true) {
+      long now = System.nanoTime();
+      long current = arrival.get();
+      // nanoTime values are only comparable through their difference
+      long base = current - now < 0 ? now : current;
+      long ahead = base - now;
+      if (ahead > tolerance) {
+        return ahead - tolerance;
+      }
+      if (arrival.compareAndSet(current, base + interval)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Forget every bucket (all clients start with a full budget again).
+   */
+  public void clear() {
+    buckets.invalidateAll();
+  }
+
+  private record BucketKey(String client, String endpoint) {}
+}
@@ -0,0 +1,78 @@
+package cm.belrose.repository;
+
+import cm.belrose.dto.UserChangeEvent;
+import cm.belrose.model.UserChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the user outbox (see {@link UserChange}).
+ *
+ * Rows are written by UserChangeService, inside the transaction of the user mutation:
+ * one save() per single-user mutation, one INSERT ... SELECT per chunk of a bulk mutation.
+ * Publishing (assigning stream positions) is done by UserChangePublisher.
+ */
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+  /**
+   * Record a CREATED change for each of these users, with their current state, in a single
+   * INSERT ... SELECT statement. IDs that match no user are skipped.
+   *
+   * @param ids the IDs of the created users
+   * @return the number of changes recorded
+   */
+  @Modifying
+  @Transactional
+  @Query("insert into UserChange (userId, type, name, email, active, version, changedAt) "
+      + "select u.id, cm.belrose.model.UserChange.Type.CREATED, u.name, u.email, u.active, "
+      + "u.version, instant from User u where u.id in :ids")
+  int insertCreatedChanges(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Record a DEACTIVATED change for each of these users, with their current state, in a single
+   * INSERT ... SELECT statement. IDs that match no user are skipped, so after a bulk
+   * deactivation exactly the deactivated users are recorded.
+   *
+   * @param ids the IDs of the deactivated users
+   * @return the number of changes recorded
+   */
+  @Modifying
+  @Transactional
+  @Query("insert into UserChange (userId, type, name, email, active, version, changedAt) "
+      + "select u.id, cm.belrose.model.UserChange.Type.DEACTIVATED, u.name, u.email, u.active, "
+      + "u.version, instant from User u where u.id in :ids")
+  int insertDeactivatedChanges(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Published changes after a stream position, for consumers that fell behind the in-memory
+   * buffer of UserChangeStream.
+   *
+   * Not read-only on purpose: read-only transactions may go to a replica (see
+   * ReplicaDataSourceConfig), which can lag behind the buffer the consumer comes from.
+   *
+   * @param since the last position the consumer has seen
+   * @param limit the maximum number of changes to return
+   * @return changes with a position greater than {@code since}, in stream order
+   */
+  @Transactional
+  @Query("select new cm.belrose.dto.UserChangeEvent(c.seq, c.userId, c.type, c.name, c.email, "
+      + "c.active, c.version, c.changedAt) "
+      + "from UserChange c where c.seq > :since order by c.seq")
+  List<UserChangeEvent> findEventsAfter(@Param("since") Long since, Limit limit);
+
+  /**
+   * @return the position of the latest published change, 0 if none
+   */
+  @Transactional
+  @Query("select coalesce(max(c.seq), 0) from UserChange c")
+  long findLastSeq();
+}
@@ -1,10 +1,23 @@
 package cm.belrose.repository;
 
+import cm.belrose.dto.UserSummary;
 import cm.belrose.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for User entity.
@@ -24,9 +37,15 @@ import java.util.Optional;
  * - count()
  * - existsById(Long id)
  * And many more...
+ *
+ * Query methods run in a read-only transaction (@Transactional(readOnly = true)) unless they
+ * join a read-write one opened by the service: Hibernate then skips dirty checking and flushing.
+ * The read endpoints use the UserSummary projections, which don't create entities at all.
+ * Arbitrary column subsets (sparse fieldsets) come from {@link UserRepositoryCustom}.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+@Transactional(readOnly = true)
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
   /**
    * Find user by email address.
@@ -48,4 +67,144 @@ public interface UserRepository extends JpaRepository<User, Long> {
    * @return true if a user with this email exists, false otherwise
    */
   boolean existsByEmail(String email);
+
+  /**
+   * Find which of the given emails are already taken.
+   *
+   * One "WHERE email IN (...)" query for a whole batch instead of one existsByEmail per user.
+   *
+   * @param emails the emails to check
+   * @return the subset of emails that already exist
+   */
+  @Query("select u.email from User u where u.email in :emails")
+  Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  /**
+   * Find a user by ID, as a read-only projection (no managed entity).
+   *
+   * @param id the user ID
+   * @return Optional containing the user if found, empty Optional otherwise
+   */
+  @Query("select new cm.belrose.dto.UserSummary(u.id, u.name, u.email, u.active, u.version) "
+      + "from User u where u.id = :id")
+  Optional<UserSummary> findSummaryById(@Param("id") Long id);
+
+  /**
+   * Find all users, as read-only projections (no managed entities).
+   *
+   * @return all users, ordered by ID
+   */
+  @Query("select new cm.belrose.dto.UserSummary(u.id, u.name, u.email, u.active, u.version) "
+      + "from User u order by u.id")
+  List<UserSummary> findAllSummaries();
+
+  /**
+   * Fetch one page of users using keyset (cursor) pagination on the primary key.
+   *
+   * Unlike OFFSET pagination, "WHERE id > :after ORDER BY id" lets the database seek straight
+   * into the primary key index, so page N costs the same as page 1 no matter how big the table is.
+   *
+   * @param after the last ID of the previous page (use 0 for the first page)
+   * @param limit the maximum number of users to return
+   * @return users with an ID greater than {@code after}, ordered by ID
+   */
+  @Query("select new cm.belrose.dto.UserSummary(u.id, u.name, u.email, u.active, u.version) "
+      + "from User u where u.id > :after order by u.id")
+  List<UserSummary> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+  /**
+   * Stream all users ordered by ID.
+   *
+   * Rows are pulled from the JDBC cursor in batches of FETCH_SIZE instead of being loaded
+   * into one big list, so memory stays constant regardless of table size.
+   * The stream MUST be consumed inside a transaction and closed afterwards (try-with-resources).
+   *
+   * @return a lazily populated stream of users
+   */
+  @Query("select new cm.belrose.dto.UserSummary(u.id, u.name, u.email, u.active, u.version) "
+      + "from User u order by u.id")
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+  Stream<UserSummary> streamAllSummaries();
+
+  /**
+   * Update a user in a single statement, whatever its current version.
+   *
+   * No SELECT first: the UPDATE goes straight to the database and bumps the version itself.
+   * @Modifying tells Spring Data this query changes data (executeUpdate instead of a result list).
+   *
+   * @return the number of updated rows: 0 if the user doesn't exist
+   */
+  @Modifying
+  @Transactional
+  @Query("update User u set u.name = :name, u.email = :email, u.active = :active, "
+      + "u.version = u.version + 1 where u.id = :id")
+  int updateUser(@Param("id") Long id, @Param("name") String name,
+      @Param("email") String email, @Param("active") boolean active);
+
+  /**
+   * Update a user in a single statement, only if it is still at the expected version
+   * ("UPDATE ... WHERE id = ? AND version = ?").
+   *
+   * The check and the write are one atomic statement, so two concurrent updates of the same
+   * version can't both succeed: the second one matches no row (no lost update).
+   *
+   * @return the number of updated rows: 0 if the user doesn't exist or its version changed
+   */
+  @Modifying
+  @Transactional
+  @Query("update User u set u.name = :name, u.email = :email, u.active = :active, "
+      + "u.version = u.version + 1 where u.id = :id and u.version = :version")
+  int updateUserIfVersion(@Param("id") Long id, @Param("version") Long version,
+      @Param("name") String name, @Param("email") String email,
+      @Param("active") boolean active);
+
+  /**
+   * Deactivate a user in a single statement (no SELECT, no entity loaded).
+   *
+   * @return the number of updated rows: 0 if the user doesn't exist
+   */
+  @Modifying
+  @Transactional
+  @Query("update User u set u.active = false, u.version = u.version + 1 where u.id = :id")
+  int deactivateById(@Param("id") Long id);
+
+  /**
+   * Deactivate a user in a single statement, only if it is still at the expected version.
+   *
+   * @return the number of updated rows: 0 if the user doesn't exist or its version changed
+   */
+  @Modifying
+  @Transactional
+  @Query("update User u set u.active = false, u.version = u.version + 1 "
+      + "where u.id = :id and u.version = :version")
+  int deactivateByIdIfVersion(@Param("id") Long id, @Param("version") Long version);
+
+  /**
+   * Deactivate many users in a single statement ("WHERE id IN (...)").
+   *
+   * @param ids the IDs of the users to deactivate
+   * @return the number of updated rows, i.e. how many of the IDs exist
+   */
+  @Modifying
+  @Transactional
+  @Query("update User u set u.active = false, u.version = u.version + 1 where u.id in :ids")
+  int deactivateAllById(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Delete a user in a single statement.
+   *
+   * Unlike the inherited deleteById(), which first loads the entity to remove it,
+   * this runs one "DELETE ... WHERE id = ?" and reports whether a row was there.
+   *
+   * @return the number of deleted rows: 0 if the user doesn't exist
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from User u where u.id = :id")
+  int deleteUserById(@Param("id") Long id);
+
+  /**
+   * Number of rows fetched per JDBC round trip when streaming.
+   */
+  int FETCH_SIZE = 500;
 }
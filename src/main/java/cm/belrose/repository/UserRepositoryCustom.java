@@ -0,0 +1,49 @@
+package cm.belrose.repository;
+
+import cm.belrose.dto.UserSummary;
+import cm.belrose.model.User;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Custom repository fragment for queries Spring Data can't derive from a method name.
+ * <p>
+ * Implemented by {@link UserRepositoryImpl}; Spring Data merges it into {@link UserRepository}
+ * (the "Impl" suffix is how the implementation is found).
+ */
+public interface UserRepositoryCustom {
+
+  /**
+   * Find a user by ID, selecting only the given columns.
+   *
+   * @param fields the User fields to select (e.g. "id", "email")
+   * @param id     the user ID
+   * @return field name → value, in the order of {@code fields}, if the user exists
+   */
+  Optional<Map<String, Object>> findFieldsById(Set<String> fields, Long id);
+
+  /**
+   * Fetch one page of users (keyset pagination on ID), selecting only the given columns.
+   *
+   * @param fields the User fields to select (e.g. "id", "email")
+   * @param after  the last ID of the previous page (use 0 for the first page)
+   * @param limit  the maximum number of users to return
+   * @return one map (field name → value) per user, ordered by ID
+   */
+  List<Map<String, Object>> findFieldsAfter(Set<String> fields, Long after, int limit);
+
+  /**
+   * Find users matching a specification, as read-only projections, ordered by ID.
+   *
+   * JpaSpecificationExecutor would return entities: this builds the same WHERE clause
+   * but selects straight into UserSummary.
+   *
+   * @param specification the WHERE clause (see {@link UserSpecifications})
+   * @param limit         the maximum number of users to return
+   * @return matching users, ordered by ID
+   */
+  List<UserSummary> findSummaries(Specification<User> specification, int limit);
+}
@@ -0,0 +1,99 @@
+package cm.belrose.repository;
+
+import cm.belrose.dto.UserSummary;
+import cm.belrose.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Criteria API implementation of {@link UserRepositoryCustom}.
+ * <p>
+ * The SELECT clause is built from the requested fields, so "?fields=id,email" really runs
+ * "select u.id, u.email from users u ..." and not a full row fetch trimmed afterwards.
+ * Results are tuples, not entities: nothing is added to the persistence context.
+ * Field names must be validated by the caller (see UserFields): they become column paths.
+ * Searches combine {@link UserSpecifications} into the WHERE clause of a UserSummary query.
+ */
+@Transactional(readOnly = true)
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public Optional<Map<String, Object>> findFieldsById(Set<String> fields, Long id) {
+    List<Map<String, Object>> rows = query(fields, (cb, user) -> cb.equal(user.get("id"), id), 1);
+    return rows.stream().findFirst();
+  }
+
+  @Override
+  public List<Map<String, Object>> findFieldsAfter(Set<String> fields, Long after, int limit) {
+    return query(fields, (cb, user) -> cb.greaterThan(user.<Long>get("id"), after), limit);
+  }
+
+  @Override
+  public List<UserSummary> findSummaries(Specification<User> specification, int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<UserSummary> query = cb.createQuery(UserSummary.class);
+    Root<User> user = query.from(User.class);
+
+    query.select(cb.construct(UserSummary.class,
+            user.get("id"), user.get("name"), user.get("email"), user.get("active"),
+            user.get("version")))
+        .where(specification.toPredicate(user, query, cb))
+        .orderBy(cb.asc(user.get("id")));
+
+    return entityManager.createQuery(query)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  private List<Map<String, Object>> query(Set<String> fields, Restriction restriction,
+      int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<User> user = query.from(User.class);
+
+    query.multiselect(fields.stream()
+            .<Selection<?>>map(field -> user.get(field).alias(field))
+            .toList())
+        .where(restriction.toPredicate(cb, user))
+        .orderBy(cb.asc(user.get("id")));
+
+    return entityManager.createQuery(query)
+        .setMaxResults(limit)
+        .getResultStream()
+        .map(UserRepositoryImpl::toMap)
+        .toList();
+  }
+
+  private static Map<String, Object> toMap(Tuple tuple) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (TupleElement<?> element : tuple.getElements()) {
+      row.put(element.getAlias(), tuple.get(element));
+    }
+    return row;
+  }
+
+  /**
+   * WHERE clause of a fields query.
+   */
+  @FunctionalInterface
+  private interface Restriction {
+    Predicate toPredicate(CriteriaBuilder cb, Root<User> user);
+  }
+}
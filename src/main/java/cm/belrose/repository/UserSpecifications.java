@@ -0,0 +1,98 @@
+package cm.belrose.repository;
+
+import cm.belrose.model.User;
+import java.util.Collection;
+import java.util.Locale;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Reusable WHERE clause building blocks for User queries.
+ * <p>
+ * A Specification is a piece of Criteria API predicate; they can be combined with and()/or(),
+ * so a search with optional filters doesn't need one query method per combination:
+ * <pre>
+ * idAfter(42L).and(emailStartsWith("jo")).and(isActive(true))
+ * </pre>
+ * Each filter is written so the database can answer it from an index:
+ * - emailStartsWith uses the idx_users_email_lower index (prefix LIKE is a range scan)
+ * - isActive + idAfter use the idx_users_active_id index (seek, then read in ID order)
+ * nameContains ("%part%") can't use a B-tree index: it only narrows what the others found.
+ */
+public final class UserSpecifications {
+
+  private static final char LIKE_ESCAPE = '\\';
+
+  private UserSpecifications() {
+  }
+
+  /**
+   * No restriction: the starting point of a combination of optional filters.
+   */
+  public static Specification<User> all() {
+    return (user, query, cb) -> cb.conjunction();
+  }
+
+  /**
+   * Users with one of the given IDs (primary key lookups).
+   */
+  public static Specification<User> idIn(Collection<Long> ids) {
+    return (user, query, cb) -> user.get("id").in(ids);
+  }
+
+  /**
+   * Keyset pagination: users with an ID greater than {@code after}.
+   */
+  public static Specification<User> idAfter(Long after) {
+    return (user, query, cb) -> cb.greaterThan(user.<Long>get("id"), after);
+  }
+
+  /**
+   * Users whose email starts with {@code prefix}, ignoring case.
+   * Compares with the generated email_lower column, which is indexed.
+   */
+  public static Specification<User> emailStartsWith(String prefix) {
+    String pattern = escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%";
+    return (user, query, cb) -> cb.like(user.get("emailLower"), pattern, LIKE_ESCAPE);
+  }
+
+  /**
+   * Users whose name contains {@code part}, ignoring case.
+   */
+  public static Specification<User> nameContains(String part) {
+    String pattern = "%" + escapeLike(part.toLowerCase(Locale.ROOT)) + "%";
+    return (user, query, cb) -> cb.like(cb.lower(user.get("name")), pattern, LIKE_ESCAPE);
+  }
+
+  /**
+   * Users whose name or email contains {@code text}, ignoring case.
+   * Not indexable: UserService only uses it alone when the trigram index can't answer
+   * (see UserTextIndex), otherwise to double-check the candidates found by the index.
+   */
+  public static Specification<User> textContains(String text) {
+    String pattern = "%" + escapeLike(text.toLowerCase(Locale.ROOT)) + "%";
+    return (user, query, cb) -> cb.or(
+        cb.like(cb.lower(user.get("name")), pattern, LIKE_ESCAPE),
+        cb.like(user.get("emailLower"), pattern, LIKE_ESCAPE));
+  }
+
+  /**
+   * Users with the given active flag.
+   */
+  public static Specification<User> isActive(boolean active) {
+    return (user, query, cb) -> cb.equal(user.get("active"), active);
+  }
+
+  /**
+   * Escape the LIKE wildcards, so "50%_off" is searched literally.
+   */
+  static String escapeLike(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (char c : value.toCharArray()) {
+      if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+        escaped.append(LIKE_ESCAPE);
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+}
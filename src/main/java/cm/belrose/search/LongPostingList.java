@@ -0,0 +1,79 @@
+package cm.belrose.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of user IDs, stored in a plain long[] (no boxing, 8 bytes per ID).
+ * <p>
+ * IDs come from a sequence, so new users are almost always appended at the end: add() is
+ * amortized O(1) in practice, O(n) in the worst case. Lookups are binary searches.
+ * Not thread safe: {@link UserTextIndex} guards it with its lock.
+ */
+final class LongPostingList {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  long get(int index) {
+    return ids[index];
+  }
+
+  /**
+   * Add an ID, keeping the list sorted. No-op if already present.
+   */
+  void add(long id) {
+    if (size > 0 && ids[size - 1] < id) {
+      ensureCapacity();
+      ids[size++] = id;
+      return;
+    }
+    int index = Arrays.binarySearch(ids, 0, size, id);
+    if (index >= 0) {
+      return;
+    }
+    int insertAt = -index - 1;
+    ensureCapacity();
+    System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+    ids[insertAt] = id;
+    size++;
+  }
+
+  /**
+   * Remove an ID. No-op if absent.
+   */
+  void remove(long id) {
+    int index = Arrays.binarySearch(ids, 0, size, id);
+    if (index < 0) {
+      return;
+    }
+    System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+    size--;
+    if (size < ids.length / 4 && ids.length > INITIAL_CAPACITY) {
+      ids = Arrays.copyOf(ids, Math.max(INITIAL_CAPACITY, ids.length / 2));
+    }
+  }
+
+  boolean contains(long id) {
+    return Arrays.binarySearch(ids, 0, size, id) >= 0;
+  }
+
+  /**
+   * Position of the first ID greater than {@code after} (size() if there is none).
+   */
+  int firstAfter(long after) {
+    int index = Arrays.binarySearch(ids, 0, size, after);
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  private void ensureCapacity() {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length * 2);
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package cm.belrose.search;
+
+import cm.belrose.datasource.PrimaryReads;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory trigram index over user names and emails, for "contains" searches (?q=).
+ * <p>
+ * "LIKE '%ohn%'" can't use a database index: every row has to be read. Here each user's
+ * "name + email" text (lower-cased) is cut into trigrams ("john" → "joh", "ohn"), and each
+ * trigram points to the sorted list of IDs of the users containing it (a posting list).
+ * A query is answered by intersecting the posting lists of its own trigrams, then checking
+ * the few remaining candidates against their text (two trigrams can match without being
+ * adjacent). No row is read from the database to find the matches.
+ * <p>
+ * Consistency:
+ * - the index is built on startup (ApplicationReadyEvent) from a streaming scan of the table
+ *   (on the primary: a lagging replica would miss the latest writes); until then
+ *   {@link #isReady()} is false and searches go to the database
+ * - UserService and UserImportService report writes; they are applied after the transaction
+ *   commits, so rolled back writes never reach the index
+ * - requests are already served during the scan: writes committed meanwhile are queued and
+ *   applied once the scan is over, otherwise the scan could overwrite them with the older
+ *   copy of the row it read
+ * - the index only proposes IDs: the users are then read from the database and checked
+ *   again, so a stale entry can't return a user that doesn't match. A missing entry is not
+ *   caught that way (the user is never proposed), hence the queue above
+ * <p>
+ * Memory: about 8 bytes per distinct trigram per user, plus the indexed texts.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserTextIndex {
+
+  /**
+   * Length of the indexed n-grams: queries shorter than this can't use the index.
+   */
+  public static final int GRAM_LENGTH = 3;
+
+  private final UserRepository userRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, LongPostingList> postings = new HashMap<>();
+  private final Map<Long, String> texts = new HashMap<>();
+  private volatile boolean ready;
+
+  /**
+   * Writes committed during a rebuild, applied after the scan. Guards {@link #rebuilding}.
+   */
+  private final List<Runnable> pendingUpdates = new ArrayList<>();
+  private boolean rebuilding;
+
+  /**
+   * (Re)build the index from the whole users table.
+   * Users are streamed through a database cursor, so the table is never loaded at once.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void rebuild() {
+    long start = System.nanoTime();
+    synchronized (pendingUpdates) {
+      ready = false;
+      rebuilding = true;
+    }
+    clear();
+    boolean built = false;
+    try {
+      PrimaryReads.call(() -> {
+        try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {
+          users.forEach(user -> indexNow(user.id(), user.name(), user.email()));
+        }
+        return null;
+      });
+      built = true;
+    } finally {
+      synchronized (pendingUpdates) {
+        // In commit order, newer than what the scan read
+        pendingUpdates.forEach(Runnable::run);
+        pendingUpdates.clear();
+        rebuilding = false;
+        ready = built;
+      }
+    }
+    log.info("User text index built: {} users, {} trigrams in {} ms", texts.size(),
+        postings.size(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Whether searches can be answered by the index.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Whether {@code query} can be answered by the index (long enough, index built).
+   */
+  public boolean canSearch(String query) {
+    return ready && query.length() >= GRAM_LENGTH;
+  }
+
+  /**
+   * Index (or re-index) a user, after the current transaction commits.
+   */
+  public void index(Long id, String name, String email) {
+    afterCommit(() -> apply(() -> indexNow(id, name, email)));
+  }
+
+  /**
+   * Remove a user from the index, after the current transaction commits.
+   */
+  public void remove(Long id) {
+    afterCommit(() -> apply(() -> removeNow(id)));
+  }
+
+  /**
+   * Remove every user from the index.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      texts.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the users whose name or email contains {@code query}, ignoring case.
+   *
+   * @param query at least {@link #GRAM_LENGTH} characters
+   * @param after only IDs greater than this one (keyset pagination)
+   * @param limit the maximum number of IDs to return
+   * @return matching user IDs, in ascending order
+   */
+  public long[] search(String query, long after, int limit) {
+    String text = normalize(query);
+    lock.readLock().lock();
+    try {
+      List<LongPostingList> lists = new ArrayList<>();
+      for (String gram : grams(text)) {
+        LongPostingList list = postings.get(gram);
+        if (list == null) {
+          return new long[0];
+        }
+        lists.add(list);
+      }
+      // Walk the shortest list, probe the others: cost depends on the rarest trigram
+      lists.sort(Comparator.comparingInt(LongPostingList::size));
+      LongPostingList shortest = lists.getFirst();
+
+      long[] ids = new long[Math.min(limit, shortest.size())];
+      int found = 0;
+      for (int i = shortest.firstAfter(after); i < shortest.size() && found < ids.length; i++) {
+        long id = shortest.get(i);
+        if (containsAll(lists, id) && texts.get(id).contains(text)) {
+          ids[found++] = id;
+        }
+      }
+      return Arrays.copyOf(ids, found);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Apply a committed write now, or after the scan if a rebuild is running.
+   */
+  private void apply(Runnable update) {
+    synchronized (pendingUpdates) {
+      if (rebuilding) {
+        pendingUpdates.add(update);
+      } else {
+        update.run();
+      }
+    }
+  }
+
+  private void indexNow(Long id, String name, String email) {
+    String text = normalize(name) + '\n' + normalize(email);
+    lock.writeLock().lock();
+    try {
+      String previous = texts.put(id, text);
+      if (previous != null) {
+        grams(previous).forEach(gram -> removePosting(gram, id));
+      }
+      grams(text).forEach(gram -> postings.computeIfAbsent(gram, key -> new LongPostingList())
+          .add(id));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeNow(Long id) {
+    lock.writeLock().lock();
+    try {
+      String previous = texts.remove(id);
+      if (previous != null) {
+        grams(previous).forEach(gram -> removePosting(gram, id));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removePosting(String gram, long id) {
+    LongPostingList list = postings.get(gram);
+    if (list != null) {
+      list.remove(id);
+      if (list.size() == 0) {
+        postings.remove(gram);
+      }
+    }
+  }
+
+  private static boolean containsAll(List<LongPostingList> lists, long id) {
+    for (int i = 1; i < lists.size(); i++) {
+      if (!lists.get(i).contains(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The distinct trigrams of a text.
+   */
+  private static Set<String> grams(String text) {
+    Set<String> grams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Run now, or after the current transaction commits if there is one.
+   */
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+}
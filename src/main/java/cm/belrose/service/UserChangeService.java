@@ -0,0 +1,229 @@
+package cm.belrose.service;
+
+import cm.belrose.changes.UserChangePublisher;
+import cm.belrose.changes.UserChangeStream;
+import cm.belrose.config.UserChangesProperties;
+import cm.belrose.dto.UserChangeEvent;
+import cm.belrose.exception.ChangesExpiredException;
+import cm.belrose.model.UserChange;
+import cm.belrose.repository.UserChangeRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Change data capture of users: lets consumers sync incrementally instead of re-reading
+ * the whole table.
+ * <p>
+ * Writing: UserService records every mutation in the user outbox, in the mutation's
+ * transaction; after the commit the publisher is woken up (see UserChangePublisher).
+ * <p>
+ * Reading: changes after a stream position come from the in-memory buffer of
+ * UserChangeStream, or from the outbox table for consumers that fell behind it.
+ * Consumers can poll (long poll: the request waits until there is a change) or subscribe
+ * (Server-Sent Events: changes are pushed as they are published).
+ */
+@Service
+@Slf4j
+public class UserChangeService {
+
+  private static final String EVENT_NAME = "user-change";
+
+  private final UserChangeRepository userChangeRepository;
+  private final UserChangeStream stream;
+  private final UserChangePublisher publisher;
+  private final UserChangesProperties properties;
+
+  /**
+   * Sends to SSE subscribers, off the publisher thread: a slow client must not hold up
+   * the others.
+   */
+  private final ExecutorService subscriberExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public UserChangeService(UserChangeRepository userChangeRepository, UserChangeStream stream,
+      UserChangePublisher publisher, UserChangesProperties properties) {
+    this.userChangeRepository = userChangeRepository;
+    this.stream = stream;
+    this.publisher = publisher;
+    this.properties = properties;
+  }
+
+  @PreDestroy
+  public void stop() {
+    subscriberExecutor.shutdownNow();
+  }
+
+  /**
+   * Record a user mutation in the outbox. Must be called in the transaction of the mutation:
+   * the change is only published if that transaction commits.
+   */
+  public void record(UserChange change) {
+    userChangeRepository.save(change);
+    publishAfterCommit();
+  }
+
+  /**
+   * Record a bulk mutation of a chunk of users in the outbox (one INSERT ... SELECT): one
+   * change per user, with the state the mutation left. Must be called in the transaction of
+   * the mutation, after it ran.
+   *
+   * @param type CREATED or DEACTIVATED
+   * @param ids  the users of the chunk; IDs that match no user are skipped
+   */
+  public void recordAll(UserChange.Type type, Collection<Long> ids) {
+    int recorded = switch (type) {
+      case CREATED -> userChangeRepository.insertCreatedChanges(ids);
+      case DEACTIVATED -> userChangeRepository.insertDeactivatedChanges(ids);
+      default -> throw new IllegalArgumentException("No bulk recording of " + type + " changes");
+    };
+    log.debug("Recorded {} {} changes", recorded, type);
+    publishAfterCommit();
+  }
+
+  private void publishAfterCommit() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          publisher.wakeUp();
+        }
+      });
+    } else {
+      publisher.wakeUp();
+    }
+  }
+
+  /**
+   * @return the position of the latest published change
+   */
+  public long getLastSeq() {
+    return stream.isStarted() ? stream.lastSeq() : userChangeRepository.findLastSeq();
+  }
+
+  /**
+   * Changes after a stream position, without waiting.
+   *
+   * @param since the last position the consumer has seen
+   * @param limit the requested number of changes, or null for the default page size
+   * @return the next changes in stream order, empty if there are none yet
+   * @throws ChangesExpiredException if some of the next changes were already deleted
+   */
+  public List<UserChangeEvent> getChanges(long since, Integer limit) {
+    int pageSize = UserService.pageSize(limit);
+    List<UserChangeEvent> buffered = stream.after(since, pageSize);
+    if (buffered != null) {
+      return buffered;
+    }
+    List<UserChangeEvent> stored = userChangeRepository.findEventsAfter(since,
+        Limit.of(pageSize));
+    // Positions have no gaps: a missing one has been deleted (app.changes.retention)
+    if ((!stored.isEmpty() && stored.getFirst().seq() != since + 1)
+        || (stored.isEmpty() && since < getLastSeq())) {
+      throw new ChangesExpiredException("User changes after " + since + " are no longer kept");
+    }
+    return stored;
+  }
+
+  /**
+   * Long poll: changes after a stream position, as soon as there is at least one.
+   *
+   * @return completed with the next changes, or with [] after app.changes.long-poll-timeout
+   */
+  public DeferredResult<List<UserChangeEvent>> awaitChanges(long since, Integer limit) {
+    DeferredResult<List<UserChangeEvent>> result =
+        new DeferredResult<>(properties.longPollTimeout().toMillis(), List::of);
+    Runnable check = () -> {
+      if (result.isSetOrExpired()) {
+        return;
+      }
+      try {
+        List<UserChangeEvent> changes = getChanges(since, limit);
+        if (!changes.isEmpty()) {
+          result.setResult(changes);
+        }
+      } catch (RuntimeException ex) {
+        result.setErrorResult(ex);
+      }
+    };
+    // Listen first, then check: a change published in between is not missed
+    stream.addListener(check);
+    result.onCompletion(() -> stream.removeListener(check));
+    check.run();
+    return result;
+  }
+
+  /**
+   * Subscribe to the changes after a stream position: the backlog is sent first, then each
+   * change as it is published. Each event has the change's position as its ID, so a client
+   * that reconnects (Last-Event-ID) resumes where it stopped.
+   *
+   * @throws ChangesExpiredException if some of the next changes were already deleted
+   */
+  public SseEmitter subscribe(long since) {
+    // Fail with 410 now, while the response can still be an error
+    getChanges(since, 1);
+
+    SseEmitter emitter = new SseEmitter(properties.sseTimeout().toMillis());
+    Subscription subscription = new Subscription(emitter, since);
+    Runnable listener = () -> subscriberExecutor.execute(subscription::send);
+    Runnable unsubscribe = () -> stream.removeListener(listener);
+    emitter.onCompletion(unsubscribe);
+    emitter.onError(ex -> unsubscribe.run());
+    stream.addListener(listener);
+    subscriberExecutor.execute(subscription::send);
+    return emitter;
+  }
+
+  /**
+   * An SSE client and the last position sent to it.
+   */
+  private final class Subscription {
+
+    private final SseEmitter emitter;
+    private final Lock lock = new ReentrantLock();
+    private long cursor;
+
+    private Subscription(SseEmitter emitter, long since) {
+      this.emitter = emitter;
+      this.cursor = since;
+    }
+
+    /**
+     * Send everything after the cursor. Sends are serialized: the client receives
+     * changes in order, once each.
+     */
+    void send() {
+      lock.lock();
+      try {
+        List<UserChangeEvent> changes;
+        while (!(changes = getChanges(cursor, UserService.MAX_PAGE_SIZE)).isEmpty()) {
+          for (UserChangeEvent change : changes) {
+            emitter.send(SseEmitter.event()
+                .id(Long.toString(change.seq()))
+                .name(EVENT_NAME)
+                .data(change, MediaType.APPLICATION_JSON));
+          }
+          cursor = changes.getLast().seq();
+        }
+      } catch (IOException | RuntimeException ex) {
+        log.debug("User change subscription ended: {}", ex.getMessage());
+        emitter.completeWithError(ex);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
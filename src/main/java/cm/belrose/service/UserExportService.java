@@ -0,0 +1,255 @@
+package cm.belrose.service;
+
+import cm.belrose.config.ExportProperties;
+import cm.belrose.dto.ExportJob;
+import cm.belrose.dto.ExportJob.Format;
+import cm.belrose.dto.ExportJob.Status;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.exception.ExportJobNotFoundException;
+import cm.belrose.exception.ExportNotReadyException;
+import cm.belrose.exception.ServiceOverloadedException;
+import cm.belrose.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Full exports of the users table to a file, run in the background.
+ * <p>
+ * A job is started, polled, then its file is downloaded (see UserExportController).
+ * The table is read in keyset-ordered chunks ("WHERE id > ? ORDER BY id LIMIT n"): each chunk
+ * is one short read-only transaction (UserRepository default), so an export never holds a
+ * pooled connection for long nor keeps more than one chunk in memory, whatever the table size.
+ * Chunks are appended to the file with a FileChannel, into a ".part" file renamed when the
+ * export is complete: a download never sees a half-written file.
+ * <p>
+ * Jobs live in memory; finished jobs and their files are removed after
+ * app.export.retention (checked whenever a new export starts).
+ */
+@Service
+@Slf4j
+public class UserExportService {
+
+  private static final String CSV_HEADER = "id,name,email,active,version\n";
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+
+  private final UserRepository userRepository;
+  private final JsonMapper jsonMapper;
+  private final ExportProperties properties;
+  private final ThreadPoolTaskExecutor executor;
+  private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+  public UserExportService(UserRepository userRepository, JsonMapper jsonMapper,
+      ExportProperties properties) throws IOException {
+    this.userRepository = userRepository;
+    this.jsonMapper = jsonMapper;
+    this.properties = properties;
+    Files.createDirectories(properties.directory());
+
+    // Small dedicated pool: exports are long and read the whole table, only a few run at once.
+    // The bounded queue makes extra jobs fail fast (503) instead of piling up.
+    executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("user-export-");
+    executor.setCorePoolSize(properties.threads());
+    executor.setMaxPoolSize(properties.threads());
+    executor.setQueueCapacity(properties.queueSize());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Start exporting all users in the background.
+   *
+   * @param format the file format
+   * @return the new job, PENDING
+   * @throws ServiceOverloadedException if too many exports are already running or waiting
+   */
+  public ExportJob startExport(Format format) {
+    removeExpiredJobs();
+
+    ExportJob job = ExportJob.pending(UUID.randomUUID().toString(), format);
+    jobs.put(job.id(), job);
+    try {
+      executor.execute(() -> runExport(job.id(), format));
+    } catch (TaskRejectedException ex) {
+      jobs.remove(job.id());
+      throw new ServiceOverloadedException("Too many exports in progress", RETRY_AFTER);
+    }
+    log.info("Export {} started ({})", job.id(), format);
+    return job;
+  }
+
+  /**
+   * Get the current state of a job.
+   *
+   * @throws ExportJobNotFoundException if the job doesn't exist or has expired
+   */
+  public ExportJob getJob(String id) {
+    ExportJob job = jobs.get(id);
+    if (job == null) {
+      throw new ExportJobNotFoundException("Export not found with id: " + id);
+    }
+    return job;
+  }
+
+  /**
+   * Get the file of a completed job.
+   *
+   * @throws ExportJobNotFoundException if the job doesn't exist or has expired
+   * @throws ExportNotReadyException    if the job hasn't completed (yet)
+   */
+  public Path getFile(String id) {
+    ExportJob job = getJob(id);
+    if (job.status() != Status.COMPLETED) {
+      throw new ExportNotReadyException("Export " + id + " is " + job.status());
+    }
+    return file(job.id(), job.format());
+  }
+
+  private void runExport(String id, Format format) {
+    Path file = file(id, format);
+    Path partial = file.resolveSibling(file.getFileName() + ".part");
+    long rows = 0;
+    long bytes = 0;
+    try {
+      try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        update(id, job -> job.running(0, 0));
+        if (format == Format.CSV) {
+          bytes += write(channel, CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long after = 0;
+        List<UserSummary> chunk;
+        do {
+          chunk = userRepository.findSummariesAfter(after, Limit.of(properties.chunkSize()));
+          if (chunk.isEmpty()) {
+            break;
+          }
+          bytes += write(channel, encode(format, chunk));
+          rows += chunk.size();
+          after = chunk.getLast().id();
+
+          long writtenRows = rows;
+          long writtenBytes = bytes;
+          update(id, job -> job.running(writtenRows, writtenBytes));
+        } while (chunk.size() == properties.chunkSize());
+        channel.force(false);
+      }
+      Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+
+      long exportedRows = rows;
+      long exportedBytes = bytes;
+      update(id, job -> job.completed(exportedRows, exportedBytes));
+      log.info("Export {} completed: {} users, {} bytes", id, rows, bytes);
+    } catch (IOException | RuntimeException ex) {
+      log.error("Export {} failed after {} users", id, rows, ex);
+      delete(partial);
+      update(id, job -> job.failed(ex.getMessage()));
+    }
+  }
+
+  /**
+   * Serialize one chunk of users.
+   */
+  private byte[] encode(Format format, List<UserSummary> users) {
+    if (format == Format.CSV) {
+      StringBuilder csv = new StringBuilder(users.size() * 64);
+      for (UserSummary user : users) {
+        csv.append(user.id()).append(',')
+            .append(csvField(user.name())).append(',')
+            .append(csvField(user.email())).append(',')
+            .append(user.active()).append(',')
+            .append(user.version()).append('\n');
+      }
+      return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    ByteArrayOutputStream ndjson = new ByteArrayOutputStream(users.size() * 96);
+    for (UserSummary user : users) {
+      ndjson.writeBytes(jsonMapper.writeValueAsBytes(user));
+      ndjson.write('\n');
+    }
+    return ndjson.toByteArray();
+  }
+
+  /**
+   * RFC 4180 quoting: fields containing a comma, a quote or a line break are enclosed in
+   * quotes, quotes are doubled.
+   */
+  private static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.contains(",") || value.contains("\"") || value.contains("\n")
+        || value.contains("\r")) {
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    return value;
+  }
+
+  private static long write(FileChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    return bytes.length;
+  }
+
+  private void update(String id, UnaryOperator<ExportJob> change) {
+    jobs.computeIfPresent(id, (key, job) -> change.apply(job));
+  }
+
+  /**
+   * Forget the jobs finished more than app.export.retention ago, and delete their files.
+   */
+  private void removeExpiredJobs() {
+    Instant expiry = Instant.now().minus(properties.retention());
+    jobs.values().removeIf(job -> {
+      if (job.finishedAt() == null || job.finishedAt().isAfter(expiry)) {
+        return false;
+      }
+      delete(file(job.id(), job.format()));
+      return true;
+    });
+  }
+
+  private Path file(String id, Format format) {
+    return properties.directory().resolve("users-" + id + "." + format.extension());
+  }
+
+  private void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ex) {
+      log.warn("Could not delete export file {}", file, ex);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package cm.belrose.service;
+
+import cm.belrose.dto.UserSummary;
+import cm.belrose.exception.InvalidFieldsException;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsing of sparse fieldsets: "?fields=id,email" → [id, email].
+ * <p>
+ * Only the fields of {@link UserSummary} may be requested. "id" is always selected
+ * (first), since it identifies the user and is the keyset pagination cursor.
+ */
+public final class UserFields {
+
+  /**
+   * Fields a client may ask for.
+   */
+  public static final Set<String> ALLOWED = Arrays.stream(UserSummary.class.getRecordComponents())
+      .map(RecordComponent::getName)
+      .collect(Collectors.toCollection(LinkedHashSet::new));
+
+  private UserFields() {
+  }
+
+  /**
+   * Parse a comma separated list of fields.
+   *
+   * @param fields the "fields" query parameter, e.g. "id,email"
+   * @return the fields to select, "id" first, without duplicates
+   * @throws InvalidFieldsException if a field is unknown
+   */
+  public static Set<String> parse(String fields) {
+    Set<String> selected = new LinkedHashSet<>();
+    selected.add("id");
+    for (String field : fields.split(",")) {
+      String name = field.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (!ALLOWED.contains(name)) {
+        throw new InvalidFieldsException("Unknown field: " + name + " (allowed: "
+            + String.join(",", ALLOWED) + ")");
+      }
+      selected.add(name);
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,172 @@
+package cm.belrose.service;
+
+import cm.belrose.dto.BulkImportResult;
+import cm.belrose.dto.BulkImportResult.RowResult;
+import cm.belrose.dto.BulkImportResult.RowStatus;
+import cm.belrose.model.User;
+import cm.belrose.model.UserChange;
+import cm.belrose.repository.UserRepository;
+import cm.belrose.search.UserTextIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for importing many users at once.
+ *
+ * Users are processed in chunks of {@link #CHUNK_SIZE}. For each chunk:
+ * 1. every row is validated (same rules as POST /api/users)
+ * 2. duplicate emails are detected with ONE "IN" query for the whole chunk
+ * 3. the remaining rows are saved with saveAll(), which Hibernate turns into JDBC batches
+ *    (hibernate.jdbc.batch_size) now that User IDs come from a pooled sequence
+ * 4. one INSERT ... SELECT records a CREATED change per inserted user (see UserChangeService)
+ * Each chunk commits in its own transaction, so a failing chunk doesn't undo the previous ones.
+ *
+ * Rows never need to be held in memory all at once: {@link #importUsers(Iterator)}
+ * pulls them one by one, which lets the controller feed it straight from an NDJSON request body.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportService {
+
+  /**
+   * Number of rows validated, checked and inserted together.
+   */
+  public static final int CHUNK_SIZE = 500;
+
+  private final UserRepository userRepository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final Validator validator;
+  private final UserTextIndex userTextIndex;
+  private final UserChangeService userChangeService;
+
+  /**
+   * Import users chunk by chunk.
+   *
+   * @param users the users to import, in request order
+   * @return one result per row plus totals
+   */
+  public BulkImportResult importUsers(Iterator<User> users) {
+    List<RowResult> results = new ArrayList<>();
+    Set<String> seenEmails = new HashSet<>();
+    List<User> chunk = new ArrayList<>(CHUNK_SIZE);
+
+    while (users.hasNext()) {
+      chunk.add(users.next());
+      if (chunk.size() == CHUNK_SIZE) {
+        results.addAll(importChunk(results.size(), chunk, seenEmails));
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      results.addAll(importChunk(results.size(), chunk, seenEmails));
+    }
+
+    BulkImportResult result = BulkImportResult.of(results);
+    log.info("Bulk import finished: {} rows, {} created, {} failed",
+        result.total(), result.created(), result.failed());
+    return result;
+  }
+
+  /**
+   * Validate, de-duplicate and insert one chunk.
+   *
+   * @param firstIndex index of the first row of the chunk in the whole request
+   * @param chunk      the rows of this chunk
+   * @param seenEmails emails already imported (or found in the database) earlier in the same
+   *                   request
+   * @return one result per row of the chunk, in order
+   */
+  private List<RowResult> importChunk(int firstIndex, List<User> chunk, Set<String> seenEmails) {
+    RowResult[] results = new RowResult[chunk.size()];
+    List<Integer> candidates = new ArrayList<>();
+
+    // 1. Validation and duplicates inside the request itself (no database access)
+    for (int i = 0; i < chunk.size(); i++) {
+      User user = chunk.get(i);
+      Set<ConstraintViolation<User>> violations = validator.validate(user);
+      if (!violations.isEmpty()) {
+        String message = violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining(", "));
+        results[i] = RowResult.rejected(firstIndex + i, user.getEmail(), RowStatus.INVALID, message);
+      } else if (!seenEmails.add(user.getEmail())) {
+        results[i] = RowResult.rejected(firstIndex + i, user.getEmail(), RowStatus.DUPLICATE,
+            "Email already exists: " + user.getEmail());
+      } else {
+        candidates.add(i);
+      }
+    }
+
+    if (!candidates.isEmpty()) {
+      try {
+        transactionTemplate.executeWithoutResult(status ->
+            insertCandidates(firstIndex, chunk, candidates, results));
+      } catch (DataAccessException | PersistenceException ex) {
+        log.error("Bulk import chunk starting at row {} failed", firstIndex, ex);
+        for (int i : candidates) {
+          User user = chunk.get(i);
+          results[i] = RowResult.rejected(firstIndex + i, user.getEmail(), RowStatus.FAILED,
+              "Chunk rejected by the database");
+          // Nothing was inserted: a later row may still use this email
+          seenEmails.remove(user.getEmail());
+        }
+      }
+    }
+    return List.of(results);
+  }
+
+  /**
+   * 2. + 3. Duplicate check against the database, then batched insert of what's left.
+   */
+  private void insertCandidates(int firstIndex, List<User> chunk, List<Integer> candidates,
+      RowResult[] results) {
+    Set<String> existingEmails = userRepository.findExistingEmails(
+        candidates.stream().map(i -> chunk.get(i).getEmail()).toList());
+
+    List<Integer> inserted = new ArrayList<>(candidates.size());
+    for (int i : candidates) {
+      User user = chunk.get(i);
+      if (existingEmails.contains(user.getEmail())) {
+        results[i] = RowResult.rejected(firstIndex + i, user.getEmail(), RowStatus.DUPLICATE,
+            "Email already exists: " + user.getEmail());
+      } else {
+        user.setId(null);
+        inserted.add(i);
+      }
+    }
+    if (inserted.isEmpty()) {
+      return;
+    }
+
+    userRepository.saveAll(inserted.stream().map(chunk::get).toList());
+    // Send the batched INSERTs now and drop the entities: the persistence context stays small
+    entityManager.flush();
+    entityManager.clear();
+
+    List<Long> ids = new ArrayList<>(inserted.size());
+    for (int i : inserted) {
+      User user = chunk.get(i);
+      results[i] = RowResult.created(firstIndex + i, user.getEmail(), user.getId());
+      userTextIndex.index(user.getId(), user.getName(), user.getEmail());
+      ids.add(user.getId());
+    }
+    // One CREATED change per inserted row, in the chunk's transaction
+    userChangeService.recordAll(UserChange.Type.CREATED, ids);
+  }
+}
@@ -1,38 +1,90 @@
 package cm.belrose.service;
 
+import cm.belrose.cache.UserCache;
+import cm.belrose.datasource.PrimaryReads;
+import cm.belrose.dto.BulkDeactivationResult;
+import cm.belrose.dto.UserSearch;
+import cm.belrose.dto.UserSummary;
 import cm.belrose.exception.DuplicateEmailException;
 import cm.belrose.exception.UserNotFoundException;
+import cm.belrose.exception.VersionMismatchException;
 import cm.belrose.model.User;
+import cm.belrose.model.UserChange;
 import cm.belrose.repository.UserRepository;
+import cm.belrose.repository.UserSpecifications;
+import cm.belrose.search.UserTextIndex;
+import io.micrometer.core.annotation.Timed;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Service layer for User operations.
  *
  * Contains business logic for user management.
  * Sits between Controller (presentation) and Repository (data access).
+ * Every mutation is also recorded in the user outbox, in the same transaction, for the
+ * change stream (see UserChangeService).
  *
  * Annotations explained:
  * - @Service: Marks this as a Spring service component
  * - @RequiredArgsConstructor: Lombok generates constructor with final fields (dependency injection)
  * - @Slf4j: Lombok provides a logger instance (log.info(), log.error(), etc.)
+ * - @Timed: Micrometer records a "user.service" timer per public method (tag "method")
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "user.service", description = "Time spent in UserService methods")
 public class UserService {
 
+  /**
+   * Page size used when the client doesn't ask for one.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  /**
+   * Upper bound for a single page, whatever the client asks for.
+   */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  /**
+   * First page size of {@link #scanAllUsers()}: small, so the first users go out at once.
+   */
+  public static final int FIRST_SCAN_PAGE_SIZE = 10;
+
   // Injected via constructor (thanks to @RequiredArgsConstructor)
   private final UserRepository userRepository;
+  private final UserCache userCache;
+  private final UserTextIndex userTextIndex;
+  private final UserChangeService userChangeService;
 
   /**
    * Create a new user.
    *
    * Business rule: Email must be unique.
+   * The rule is enforced by the uk_users_email database constraint rather than by an
+   * existsByEmail() check first: one statement instead of two, and no race window where
+   * two concurrent creates with the same email both pass the check.
    *
    * @Transactional ensures that if anything fails, the entire operation is rolled back.
    * This maintains data consistency.
@@ -43,107 +95,435 @@ public class UserService {
    */
   @Transactional
   public User createUser(User user) {
-    log.info("Creating user with email: {}", user.getEmail());
+    log.debug("Creating user");
 
-    // Business logic: Check for duplicate email
-    if (userRepository.existsByEmail(user.getEmail())) {
-      log.error("Email already exists: {}", user.getEmail());
-      throw new DuplicateEmailException("Email already exists: " + user.getEmail());
+    try {
+      // saveAndFlush: the INSERT runs now, so a duplicate email fails here and not at commit
+      User savedUser = userRepository.saveAndFlush(user);
+      userTextIndex.index(savedUser.getId(), savedUser.getName(), savedUser.getEmail());
+      userChangeService.record(UserChange.of(UserChange.Type.CREATED,
+          new UserSummary(savedUser.getId(), savedUser.getName(), savedUser.getEmail(),
+              savedUser.isActive(), savedUser.getVersion())));
+      log.debug("User created successfully with ID: {}", savedUser.getId());
+      return savedUser;
+    } catch (DataIntegrityViolationException ex) {
+      throw translateDuplicateEmail(ex, user.getEmail());
     }
-
-    // Save to database
-    User savedUser = userRepository.save(user);
-    log.info("User created successfully with ID: {}", savedUser.getId());
-    return savedUser;
   }
 
   /**
    * Get user by ID.
    *
+   * Not @Transactional on purpose: a cache hit needs no transaction (nor connection) at all,
+   * and on a miss the repository query runs in its own read-only transaction, on the primary.
+   *
    * @param id the user ID
    * @return the user
    * @throws UserNotFoundException if user doesn't exist
    */
-  public User getUserById(Long id) {
-    log.info("Fetching user with ID: {}", id);
+  public UserSummary getUserById(Long id) {
+    log.debug("Fetching user with ID: {}", id);
 
-    // Optional pattern: orElseThrow() converts Optional to value or throws exception
-    return userRepository.findById(id)
+    // Read-through cache: the repository is only queried on a cache miss
+    return userCache.getUser(id, this::loadSummary);
+  }
+
+  /**
+   * Get only some fields of a user (sparse fieldset), bypassing the cache.
+   *
+   * @param id     the user ID
+   * @param fields comma separated field names, e.g. "id,email"
+   * @return field name → value
+   * @throws UserNotFoundException if user doesn't exist
+   * @throws cm.belrose.exception.InvalidFieldsException if a field is unknown
+   */
+  public Map<String, Object> getUserFields(Long id, String fields) {
+    log.debug("Fetching fields {} of user with ID: {}", fields, id);
+    return userRepository.findFieldsById(UserFields.parse(fields), id)
         .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
   }
 
+  /**
+   * Get user by email.
+   *
+   * The email is first resolved to an ID (email → ID cache), then the user comes from the
+   * users cache. If the mapping turns out to be stale (user deleted or email changed by a
+   * statement that didn't know the old email), it is dropped and resolved again from the database.
+   *
+   * @param email the user email
+   * @return the user
+   * @throws UserNotFoundException if no user has this email
+   */
+  public UserSummary getUserByEmail(String email) {
+    log.debug("Fetching user by email");
+
+    Long id = userCache.getUserId(email, this::loadUserId);
+    try {
+      UserSummary user = getUserById(id);
+      if (email.equals(user.email())) {
+        return user;
+      }
+    } catch (UserNotFoundException ex) {
+      log.debug("Stale email mapping for user ID: {}", id);
+    }
+
+    userCache.evict(null, email);
+    return getUserById(userCache.getUserId(email, this::loadUserId));
+  }
+
   /**
    * Get all users.
    *
+   * Loads the whole table into memory - prefer {@link #getUsers(Long, Integer)}
+   * or {@link #streamAllUsers(Consumer)} for anything but small data sets.
+   *
    * @return list of all users
    */
-  public List<User> getAllUsers() {
-    log.info("Fetching all users");
-    return userRepository.findAll();
+  @Transactional(readOnly = true)
+  public List<UserSummary> getAllUsers() {
+    log.debug("Fetching all users");
+    return userRepository.findAllSummaries();
+  }
+
+  /**
+   * Get one page of users using keyset pagination.
+   *
+   * @param after the ID of the last user of the previous page, or null for the first page
+   * @param limit the requested page size, or null for {@link #DEFAULT_PAGE_SIZE}
+   *              (capped to {@link #MAX_PAGE_SIZE})
+   * @return users with an ID greater than {@code after}, ordered by ID
+   */
+  @Transactional(readOnly = true)
+  public List<UserSummary> getUsers(Long after, Integer limit) {
+    log.debug("Fetching users after ID: {}", after);
+    return userRepository.findSummariesAfter(after == null ? 0L : after, Limit.of(pageSize(limit)));
+  }
+
+  /**
+   * Get one page of users (keyset pagination), with only some fields (sparse fieldset).
+   *
+   * @param after  the ID of the last user of the previous page, or null for the first page
+   * @param limit  the requested page size, or null for {@link #DEFAULT_PAGE_SIZE}
+   * @param fields comma separated field names, e.g. "id,email" ("id" is always included)
+   * @return one map (field name → value) per user, ordered by ID
+   * @throws cm.belrose.exception.InvalidFieldsException if a field is unknown
+   */
+  @Transactional(readOnly = true)
+  public List<Map<String, Object>> getUsersFields(Long after, Integer limit, String fields) {
+    log.debug("Fetching fields {} of users after ID: {}", fields, after);
+    Set<String> selected = UserFields.parse(fields);
+    return userRepository.findFieldsAfter(selected, after == null ? 0L : after, pageSize(limit));
+  }
+
+  /**
+   * Search users, one page at a time (keyset pagination).
+   *
+   * Only the filters present in {@code search} are added to the WHERE clause
+   * (see {@link UserSpecifications}); with no filter this is the same as {@link #getUsers}.
+   * A text query (q) is answered by the in-memory {@link UserTextIndex} when possible:
+   * the index finds the matching IDs, then only those rows are read.
+   *
+   * @param search the filters (text, email prefix, name part, active flag), all optional
+   * @param after  the ID of the last user of the previous page, or null for the first page
+   * @param limit  the requested page size, or null for {@link #DEFAULT_PAGE_SIZE}
+   * @return matching users with an ID greater than {@code after}, ordered by ID
+   */
+  @Transactional(readOnly = true)
+  public List<UserSummary> searchUsers(UserSearch search, Long after, Integer limit) {
+    log.debug("Searching users after ID: {}", after);
+
+    long afterId = after == null ? 0L : after;
+    int pageSize = pageSize(limit);
+    Specification<User> filters = UserSpecifications.all();
+    if (StringUtils.hasText(search.email())) {
+      filters = filters.and(UserSpecifications.emailStartsWith(search.email()));
+    }
+    if (StringUtils.hasText(search.name())) {
+      filters = filters.and(UserSpecifications.nameContains(search.name()));
+    }
+    if (search.active() != null) {
+      filters = filters.and(UserSpecifications.isActive(search.active()));
+    }
+    if (StringUtils.hasText(search.q())) {
+      // Also checked in the database: the index may be a little behind (see UserTextIndex)
+      filters = filters.and(UserSpecifications.textContains(search.q()));
+      if (userTextIndex.canSearch(search.q())) {
+        return searchIndexed(search.q(), filters, afterId, pageSize);
+      }
+    }
+    return userRepository.findSummaries(UserSpecifications.idAfter(afterId).and(filters),
+        pageSize);
+  }
+
+  /**
+   * Text search through the trigram index: the index proposes a page of IDs, the database
+   * reads those rows only (primary key lookups) and applies the other filters.
+   * When filters reject candidates, the next IDs are taken from the index until the page is full.
+   */
+  private List<UserSummary> searchIndexed(String q, Specification<User> filters, long after,
+      int pageSize) {
+    List<UserSummary> page = new ArrayList<>(pageSize);
+    long cursor = after;
+    while (page.size() < pageSize) {
+      long[] candidates = userTextIndex.search(q, cursor, pageSize);
+      if (candidates.length == 0) {
+        break;
+      }
+      List<Long> ids = Arrays.stream(candidates).boxed().toList();
+      page.addAll(userRepository.findSummaries(UserSpecifications.idIn(ids).and(filters),
+          pageSize - page.size()));
+      cursor = candidates[candidates.length - 1];
+      if (candidates.length < pageSize) {
+        break;
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Stream all users, ordered by ID, to the given consumer.
+   *
+   * The read-only transaction keeps the JDBC cursor open while the consumer runs.
+   * Rows are read as UserSummary projections: nothing accumulates in the persistence context,
+   * so memory doesn't grow with the table.
+   *
+   * @param consumer called once per user
+   */
+  @Transactional(readOnly = true)
+  public void streamAllUsers(Consumer<UserSummary> consumer) {
+    log.debug("Streaming all users");
+    try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {
+      users.forEach(consumer);
+    }
+  }
+
+  /**
+   * Scan all users, ordered by ID, as a Flux (reactive variant of {@link #streamAllUsers}).
+   *
+   * Users are read one keyset page at a time, on demand: the next page is only queried when
+   * the subscriber (e.g. an HTTP response written at the client's pace) has consumed the
+   * previous one. Memory stays bounded by about two pages whatever the table size, and no
+   * connection is held between pages: each query runs in its own short read-only transaction.
+   * The first page has {@link #FIRST_SCAN_PAGE_SIZE} users; the size then doubles up to
+   * {@link #MAX_PAGE_SIZE}.
+   * The queries are blocking JDBC calls: they run on Reactor's boundedElastic scheduler,
+   * never on the subscriber's thread. (@Timed only measures building the Flux.)
+   *
+   * @return the users, read as they are requested
+   */
+  public Flux<UserSummary> scanAllUsers() {
+    log.debug("Scanning all users");
+    record Page(long after, int size) {}
+    return Flux.<List<UserSummary>, Page>generate(() -> new Page(0L, FIRST_SCAN_PAGE_SIZE),
+            (page, sink) -> {
+              List<UserSummary> users = userRepository.findSummariesAfter(page.after(),
+                  Limit.of(page.size()));
+              if (!users.isEmpty()) {
+                sink.next(users);
+              }
+              if (users.size() < page.size()) {
+                // A short page is the last one: no extra query to find out
+                sink.complete();
+                return page;
+              }
+              return new Page(users.getLast().id(), Math.min(page.size() * 2, MAX_PAGE_SIZE));
+            })
+        // Prefetch one page, not Reactor's default 256
+        .flatMapIterable(Function.identity(), 1)
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  /**
+   * Resolve the effective page size: default when absent, clamped to [1, MAX_PAGE_SIZE].
+   */
+  public static int pageSize(Integer limit) {
+    if (limit == null) {
+      return DEFAULT_PAGE_SIZE;
+    }
+    return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
   }
 
   /**
    * Update user information.
    *
-   * @param id the user ID to update
-   * @param userDetails the new user details
-   * @return the updated user
-   * @throws UserNotFoundException if user doesn't exist
+   * Runs as a single UPDATE statement, without loading the user first.
+   * With an expected version (If-Match), the statement only matches the row if it is still at
+   * that version ("WHERE id = ? AND version = ?"): a concurrent update makes it fail with
+   * VersionMismatchException instead of being silently overwritten.
+   *
+   * @param id              the user ID to update
+   * @param userDetails     the new user details
+   * @param expectedVersion the version the client last saw, or null to update unconditionally
+   * @return the updated user, with its new version
+   * @throws UserNotFoundException    if user doesn't exist
+   * @throws VersionMismatchException if the user is no longer at the expected version
    */
   @Transactional
-  public User updateUser(Long id, User userDetails) {
-    log.info("Updating user with ID: {}", id);
+  public UserSummary updateUser(Long id, User userDetails, Long expectedVersion) {
+    log.debug("Updating user with ID: {} (expected version: {})", id, expectedVersion);
 
-    // First, get the existing user (throws exception if not found)
-    User user = getUserById(id);
+    int updated;
+    try {
+      updated = expectedVersion == null
+          ? userRepository.updateUser(id, userDetails.getName(), userDetails.getEmail(),
+              userDetails.isActive())
+          : userRepository.updateUserIfVersion(id, expectedVersion, userDetails.getName(),
+              userDetails.getEmail(), userDetails.isActive());
+    } catch (DataIntegrityViolationException ex) {
+      throw translateDuplicateEmail(ex, userDetails.getEmail());
+    }
+    if (updated == 0) {
+      throw updateFailure(id, expectedVersion);
+    }
 
-    // Update fields
-    user.setName(userDetails.getName());
-    user.setEmail(userDetails.getEmail());
-    user.setActive(userDetails.isActive());
+    // The previous email isn't known (nothing was loaded): its email → ID mapping is left
+    // to the stale-mapping check of getUserByEmail().
+    userCache.evict(id, userDetails.getEmail());
+    userTextIndex.index(id, userDetails.getName(), userDetails.getEmail());
+    log.debug("User updated successfully");
 
-    // Save changes (JPA detects changes and updates automatically in @Transactional)
-    User updatedUser = userRepository.save(user);
-    log.info("User updated successfully");
+    // With an expected version everything is known: no need to read the row back
+    UserSummary updatedUser = expectedVersion != null
+        ? new UserSummary(id, userDetails.getName(), userDetails.getEmail(),
+            userDetails.isActive(), expectedVersion + 1)
+        : loadSummary(id);
+    userChangeService.record(UserChange.of(UserChange.Type.UPDATED, updatedUser));
     return updatedUser;
   }
 
   /**
    * Delete user.
    *
+   * One "DELETE ... WHERE id = ?" statement: the affected-row count tells whether the user
+   * existed, no need to load it first.
+   *
    * @param id the user ID to delete
    * @throws UserNotFoundException if user doesn't exist
    */
   @Transactional
   public void deleteUser(Long id) {
-    log.info("Deleting user with ID: {}", id);
+    log.debug("Deleting user with ID: {}", id);
 
-    // Check if user exists before deleting
-    if (!userRepository.existsById(id)) {
+    if (userRepository.deleteUserById(id) == 0) {
       throw new UserNotFoundException("User not found with id: " + id);
     }
-
-    userRepository.deleteById(id);
-    log.info("User deleted successfully");
+    // The email → ID mapping is left to the stale-mapping check of getUserByEmail()
+    userCache.evict(id);
+    userTextIndex.remove(id);
+    userChangeService.record(UserChange.of(UserChange.Type.DELETED, id, null));
+    log.debug("User deleted successfully");
   }
 
   /**
    * Deactivate user (soft delete).
    *
-   * Sets active flag to false instead of deleting from database.
+   * Sets active flag to false instead of deleting from database, in a single UPDATE statement.
+   * With an expected version (If-Match), the statement only matches the row if it is still
+   * at that version.
    *
-   * @param id the user ID to deactivate
-   * @return the deactivated user
+   * @param id              the user ID to deactivate
+   * @param expectedVersion the version the client last saw, or null to deactivate unconditionally
+   * @throws UserNotFoundException    if user doesn't exist
+   * @throws VersionMismatchException if the user is no longer at the expected version
    */
   @Transactional
-  public User deactivateUser(Long id) {
-    log.info("Deactivating user with ID: {}", id);
+  public void deactivateUser(Long id, Long expectedVersion) {
+    log.debug("Deactivating user with ID: {} (expected version: {})", id, expectedVersion);
 
-    User user = getUserById(id);
-    user.setActive(false);
+    int updated = expectedVersion == null
+        ? userRepository.deactivateById(id)
+        : userRepository.deactivateByIdIfVersion(id, expectedVersion);
+    if (updated == 0) {
+      throw updateFailure(id, expectedVersion);
+    }
+    userCache.evict(id);
+    userChangeService.record(UserChange.of(UserChange.Type.DEACTIVATED, id,
+        expectedVersion == null ? null : expectedVersion + 1));
+    log.debug("User deactivated successfully");
+  }
 
-    User deactivatedUser = userRepository.save(user);
-    log.info("User deactivated successfully");
-    return deactivatedUser;
+  /**
+   * Deactivate many users at once (e.g. offboarding jobs).
+   *
+   * IDs are sent in chunks of {@link UserImportService#CHUNK_SIZE}, one UPDATE per chunk,
+   * all in the same transaction: either every user is deactivated or none is.
+   * Each chunk also records one DEACTIVATED change per user it matched (one INSERT ... SELECT).
+   * Unknown IDs are not an error, they are counted in the result.
+   *
+   * @param ids the IDs of the users to deactivate (duplicates are ignored)
+   * @return how many users were deactivated and how many IDs matched no user
+   */
+  @Transactional
+  public BulkDeactivationResult deactivateUsers(Collection<Long> ids) {
+    List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+    log.debug("Deactivating {} users", distinctIds.size());
+
+    int deactivated = 0;
+    for (int from = 0; from < distinctIds.size(); from += UserImportService.CHUNK_SIZE) {
+      List<Long> chunk = distinctIds.subList(from,
+          Math.min(from + UserImportService.CHUNK_SIZE, distinctIds.size()));
+      deactivated += userRepository.deactivateAllById(chunk);
+      userChangeService.recordAll(UserChange.Type.DEACTIVATED, chunk);
+      chunk.forEach(userCache::evict);
+    }
+    log.debug("{} users deactivated", deactivated);
+    return BulkDeactivationResult.of(distinctIds.size(), deactivated);
+  }
+
+  /**
+   * Turn a violation of the uk_users_email constraint into a DuplicateEmailException.
+   * Any other integrity violation (e.g. a NOT NULL column) is returned unchanged.
+   *
+   * @param ex    the exception raised by the INSERT/UPDATE
+   * @param email the email that was written
+   * @return the exception to throw
+   */
+  private static RuntimeException translateDuplicateEmail(DataIntegrityViolationException ex,
+      String email) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException violation
+          && violation.getConstraintName() != null
+          && violation.getConstraintName().toLowerCase(Locale.ROOT)
+              .contains(User.EMAIL_UNIQUE_CONSTRAINT)) {
+        log.debug("Rejected duplicate email");
+        return new DuplicateEmailException("Email already exists: " + email, ex);
+      }
+    }
+    return ex;
+  }
+
+  /**
+   * Explain why a conditional update matched no row: the user is gone (404),
+   * or it is at another version (412).
+   */
+  private RuntimeException updateFailure(Long id, Long expectedVersion) {
+    if (expectedVersion == null || !userRepository.existsById(id)) {
+      return new UserNotFoundException("User not found with id: " + id);
+    }
+    return new VersionMismatchException("User " + id + " has been modified: version mismatch");
+  }
+
+  /**
+   * Load a user projection from the database, bypassing the cache.
+   *
+   * Read from the primary: the result is cached, and a replica may not have the write that
+   * just evicted it yet.
+   *
+   * @throws UserNotFoundException if user doesn't exist
+   */
+  private UserSummary loadSummary(Long id) {
+    return PrimaryReads.call(() -> userRepository.findSummaryById(id))
+        .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+  }
+
+  /**
+   * Resolve a user ID from the database (primary), bypassing the cache.
+   *
+   * @throws UserNotFoundException if no user has this email
+   */
+  private Long loadUserId(String email) {
+    return PrimaryReads.call(() -> userRepository.findByEmail(email))
+        .map(User::getId)
+        .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
   }
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+package cm.belrose.service;
+
+import cm.belrose.config.WriteBehindProperties;
+import cm.belrose.config.WriteBehindProperties.Durability;
+import cm.belrose.dto.UserSummary;
+import cm.belrose.exception.ServiceOverloadedException;
+import cm.belrose.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind for user mutations: group commits instead of one transaction per request.
+ * <p>
+ * Callers don't write: they put the mutation in a bounded queue and get a future.
+ * A single writer thread takes up to app.write-behind.batch-size mutations (waiting at most
+ * app.write-behind.max-delay for the batch to fill up) and applies them through UserService
+ * in ONE transaction: one commit - one log flush on a durable database - for the whole batch.
+ * <p>
+ * If any mutation of the batch fails (duplicate email, unknown user, version mismatch...),
+ * the whole transaction is rolled back and the batch is replayed one mutation per transaction,
+ * so only the failing ones fail, with their usual exception.
+ * <p>
+ * Back-pressure: when the queue is full, callers wait up to app.write-behind.offer-timeout,
+ * then get a ServiceOverloadedException (503) rather than growing the queue without bound.
+ * <p>
+ * Metrics: "user.write-behind.queue" (queued mutations), "user.write-behind.batch.size"
+ * (mutations per commit), "user.write-behind.fallbacks" (batches replayed one by one) and
+ * "user.write-behind.failures" (mutations that failed).
+ */
+@Service
+@Slf4j
+public class UserWriteBehindService {
+
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+  /**
+   * How often an idle writer checks whether the application is stopping.
+   */
+  private static final long IDLE_POLL_MILLIS = 200;
+
+  private final UserService userService;
+  private final TransactionTemplate transactionTemplate;
+  private final WriteBehindProperties properties;
+  private final BlockingQueue<PendingWrite<?>> queue;
+  private final DistributionSummary batchSizes;
+  private final Counter fallbacks;
+  private final Counter failures;
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  public UserWriteBehindService(UserService userService,
+      PlatformTransactionManager transactionManager, WriteBehindProperties properties,
+      MeterRegistry meterRegistry) {
+    this.userService = userService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+    this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+    meterRegistry.gauge("user.write-behind.queue", queue, Collection::size);
+    this.batchSizes = DistributionSummary.builder("user.write-behind.batch.size")
+        .description("User mutations per group commit")
+        .register(meterRegistry);
+    this.fallbacks = meterRegistry.counter("user.write-behind.fallbacks");
+    this.failures = meterRegistry.counter("user.write-behind.failures");
+    this.writer = Thread.ofPlatform().name("user-write-behind").unstarted(this::drain);
+  }
+
+  @PostConstruct
+  public void start() {
+    writer.start();
+  }
+
+  /**
+   * Stop accepting mutations, and wait for the queued ones to be committed.
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    writer.join();
+  }
+
+  /**
+   * @return true when UserController should send mutations through this queue
+   */
+  public boolean isEnabled() {
+    return properties.enabled();
+  }
+
+  /**
+   * @return true when callers are answered as soon as their mutation is queued
+   */
+  public boolean acceptsBeforeCommit() {
+    return properties.durability() == Durability.ACCEPTED;
+  }
+
+  /**
+   * Queue {@link UserService#createUser(User)}.
+   * <p>
+   * Every attempt persists a fresh copy of the user: a group commit that rolls back leaves
+   * its ID and version on the instance it persisted, and Spring Data would then take the
+   * replayed instance for an existing user (merge instead of persist) and fail.
+   *
+   * @return completed with the created user once committed, or with its exception
+   * @throws ServiceOverloadedException if the queue stays full
+   */
+  public CompletableFuture<User> createUser(User user) {
+    User request = newUser(user);
+    return enqueue(service -> service.createUser(newUser(request)));
+  }
+
+  /**
+   * A new, never persisted user with the fields a client can set.
+   */
+  private static User newUser(User user) {
+    User copy = new User(user.getName(), user.getEmail());
+    copy.setActive(user.isActive());
+    return copy;
+  }
+
+  /**
+   * Queue {@link UserService#updateUser(Long, User, Long)}.
+   *
+   * @return completed with the updated user once committed, or with its exception
+   * @throws ServiceOverloadedException if the queue stays full
+   */
+  public CompletableFuture<UserSummary> updateUser(Long id, User userDetails,
+      Long expectedVersion) {
+    return enqueue(service -> service.updateUser(id, userDetails, expectedVersion));
+  }
+
+  /**
+   * Queue {@link UserService#deactivateUser(Long, Long)}.
+   *
+   * @return completed once committed, or with its exception
+   * @throws ServiceOverloadedException if the queue stays full
+   */
+  public CompletableFuture<Void> deactivateUser(Long id, Long expectedVersion) {
+    return enqueue(service -> {
+      service.deactivateUser(id, expectedVersion);
+      return null;
+    });
+  }
+
+  private <T> CompletableFuture<T> enqueue(Function<UserService, T> operation) {
+    PendingWrite<T> write = new PendingWrite<>(operation, new CompletableFuture<>());
+    boolean queued;
+    try {
+      queued = running
+          && queue.offer(write, properties.offerTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      queued = false;
+    }
+    if (!queued) {
+      throw new ServiceOverloadedException("Too many pending user writes", RETRY_AFTER);
+    }
+    return write.result();
+  }
+
+  /**
+   * Writer loop: collect a batch, commit it, repeat. Drains the queue before stopping.
+   */
+  private void drain() {
+    List<PendingWrite<?>> batch = new ArrayList<>(properties.batchSize());
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingWrite<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, properties.batchSize() - batch.size());
+
+        // Under load the batch is already full; otherwise give it max-delay to fill up
+        long deadline = System.nanoTime() + properties.maxDelay().toNanos();
+        while (batch.size() < properties.batchSize()) {
+          PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException ex) {
+        // Stop accepting writes; the flag is not restored so that the loop can still drain
+        // what is already queued (callers are waiting for it)
+        running = false;
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+        batch.clear();
+      }
+    }
+    log.debug("User write-behind stopped");
+  }
+
+  /**
+   * Apply a batch in one transaction; replay it one mutation per transaction if that fails.
+   */
+  private void flush(List<PendingWrite<?>> batch) {
+    batchSizes.record(batch.size());
+    List<Runnable> completions = new ArrayList<>(batch.size());
+    try {
+      // UserService methods join this transaction: their cache evictions and index updates
+      // still wait for its commit
+      transactionTemplate.executeWithoutResult(status ->
+          batch.forEach(write -> completions.add(write.apply(userService))));
+    } catch (RuntimeException ex) {
+      if (batch.size() == 1) {
+        fail(batch.getFirst(), ex);
+        return;
+      }
+      log.debug("Group commit of {} user writes failed, replaying them one by one",
+          batch.size(), ex);
+      fallbacks.increment();
+      batch.forEach(this::applyAlone);
+      return;
+    }
+    completions.forEach(Runnable::run);
+  }
+
+  /**
+   * Apply one mutation in its own transaction (UserService methods are @Transactional).
+   */
+  private void applyAlone(PendingWrite<?> write) {
+    try {
+      write.apply(userService).run();
+    } catch (RuntimeException ex) {
+      fail(write, ex);
+    }
+  }
+
+  private void fail(PendingWrite<?> write, RuntimeException ex) {
+    failures.increment();
+    if (acceptsBeforeCommit()) {
+      // Nobody is waiting for the result: the log is the only trace
+      log.warn("Queued user write failed: {}", ex.getMessage());
+    }
+    write.result().completeExceptionally(ex);
+  }
+
+  /**
+   * A queued mutation and the future of its result.
+   */
+  private record PendingWrite<T>(Function<UserService, T> operation,
+      CompletableFuture<T> result) {
+
+    /**
+     * Run the mutation; the returned action completes the future (to be run after the commit).
+     */
+    Runnable apply(UserService service) {
+      T value = operation.apply(service);
+      return () -> result.complete(value);
+    }
+  }
+}
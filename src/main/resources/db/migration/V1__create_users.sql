@@ -0,0 +1,22 @@
+-- users table, as mapped by cm.belrose.model.User
+-- (only applied with the "persistent" profile; the in-memory database is still created by Hibernate)
+
+-- INCREMENT BY must match User.ID_ALLOCATION_SIZE (pooled-lo optimizer)
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+  id          BIGINT       NOT NULL,
+  name        VARCHAR(255) NOT NULL,
+  email       VARCHAR(255) NOT NULL,
+  email_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(email)),
+  active      BOOLEAN      NOT NULL,
+  version     BIGINT       NOT NULL,
+  CONSTRAINT pk_users PRIMARY KEY (id),
+  CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+-- "WHERE active = ? AND id > ? ORDER BY id": seek then read in order, no sort
+CREATE INDEX idx_users_active_id ON users (active, id);
+
+-- case insensitive email prefix search: "WHERE email_lower LIKE 'jo%'" is a range scan
+CREATE INDEX idx_users_email_lower ON users (email_lower);
@@ -0,0 +1,18 @@
+-- user_outbox table, as mapped by cm.belrose.model.UserChange
+-- (rows written with each user mutation, numbered and published by UserChangePublisher)
+
+CREATE TABLE user_outbox (
+  id          BIGINT       GENERATED BY DEFAULT AS IDENTITY,
+  user_id     BIGINT       NOT NULL,
+  change_type VARCHAR(16)  NOT NULL,
+  name        VARCHAR(255),
+  email       VARCHAR(255),
+  active      BOOLEAN,
+  version     BIGINT,
+  changed_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+  seq         BIGINT,
+  CONSTRAINT pk_user_outbox PRIMARY KEY (id)
+);
+
+-- Publisher: "WHERE seq IS NULL"; consumers behind the in-memory buffer: "WHERE seq > ? ORDER BY seq"
+CREATE UNIQUE INDEX uk_user_outbox_seq ON user_outbox (seq);
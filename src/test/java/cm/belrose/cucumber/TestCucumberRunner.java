@@ -34,7 +34,8 @@ import static io.cucumber.junit.platform.engine.Constants.*;
  *   - Finds @Given, @When, @Then methods
  * <p>
  * - FILTER_TAGS_PROPERTY_NAME: Filter which scenarios to run
- *   - "not @Ignore": Run everything except scenarios tagged with @Ignore
+ *   - "not @Ignore and not @Load": Run everything except scenarios tagged with @Ignore,
+ *     and the load tests (run them with: ./gradlew loadTest)
  *   - Can be overridden via system property: -Dcucumber.filter.tags="@Smoke"
  */
 
@@ -47,7 +48,7 @@ import static io.cucumber.junit.platform.engine.Constants.*;
 )
 
 @ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "cm.belrose.cucumber")
-@ConfigurationParameter(key = FILTER_TAGS_PROPERTY_NAME, value = "not @Ignore")
+@ConfigurationParameter(key = FILTER_TAGS_PROPERTY_NAME, value = "not @Ignore and not @Load")
 public class TestCucumberRunner {
   // This class intentionally left empty
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package cm.belrose.cucumber.hooks;
 
+import cm.belrose.cache.UserCache;
+import cm.belrose.ratelimit.AdaptiveConcurrencyLimiter;
+import cm.belrose.ratelimit.TokenBucketRateLimiter;
 import cm.belrose.repository.UserRepository;
+import cm.belrose.search.UserTextIndex;
 import io.cucumber.java.After;
 import io.cucumber.java.Before;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
 /**
@@ -31,6 +36,10 @@ import org.springframework.stereotype.Component;
 public class DatabaseHooks {
 
   private final UserRepository userRepository;
+  private final UserCache userCache;
+  private final UserTextIndex userTextIndex;
+  private final ObjectProvider<TokenBucketRateLimiter> rateLimiter;
+  private final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter;
 
   /**
    * Clean database before each scenario.
@@ -51,6 +60,11 @@ public class DatabaseHooks {
   public void beforeScenario() {
     log.info("=== Starting new scenario - Cleaning database ===");
     userRepository.deleteAll();
+    userCache.clear();
+    userTextIndex.clear();
+    // Every scenario starts with full rate limit budgets and the initial concurrency limit
+    rateLimiter.ifAvailable(TokenBucketRateLimiter::clear);
+    concurrencyLimiter.ifAvailable(AdaptiveConcurrencyLimiter::reset);
   }
 
   /**
@@ -1,22 +1,71 @@
 package cm.belrose.cucumber.steps;
 
+import cm.belrose.SpringBootAppWithCucumberApplication;
+import cm.belrose.cache.UserCache;
+import cm.belrose.cache.UserCacheWarmer;
+import cm.belrose.config.UserCacheProperties;
+import cm.belrose.dto.BulkDeactivationResult;
+import cm.belrose.dto.BulkImportResult;
+import cm.belrose.dto.ExportJob;
+import cm.belrose.dto.UserChangeCursor;
+import cm.belrose.dto.UserChangeEvent;
+import cm.belrose.dto.UserSummary;
 import cm.belrose.model.User;
 import cm.belrose.repository.UserRepository;
+import cm.belrose.search.UserTextIndex;
+import cm.belrose.service.UserImportService;
+import cm.belrose.service.UserWriteBehindService;
+import com.zaxxer.hikari.HikariDataSource;
 import io.cucumber.datatable.DataTable;
+import io.cucumber.java.After;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import javax.sql.DataSource;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,19 +85,56 @@ public class UserSteps {
 
   private final UserRepository userRepository;
 
+  private final EntityManagerFactory entityManagerFactory;
+
+  private final UserTextIndex userTextIndex;
+
+  private final UserWriteBehindService userWriteBehindService;
+
+  private final MeterRegistry meterRegistry;
+
+  private final UserCache userCache;
+
+  private final UserCacheProperties userCacheProperties;
+
   // === SCENARIO STATE (shared between steps in same scenario) ===
 
   private User currentUser;
   private ResponseEntity<User> userResponse;
   private ResponseEntity<User[]> usersResponse;
+  private ResponseEntity<String> rawResponse;
+  private ResponseEntity<BulkImportResult> importResponse;
+  private ResponseEntity<Map<String, Object>[]> fieldsResponse;
+  private ResponseEntity<BulkDeactivationResult> deactivationResponse;
+  private ExportJob exportJob;
+  private List<CompletableFuture<User>> queuedWrites;
+  private long commitsBefore;
+  private double fallbacksBefore;
+  private double primaryReadsBefore;
+  private List<ResponseEntity<String>> clientResponses;
+  private List<UserSummary> lookupResults;
+  private int lookupLoads;
   private String lastErrorMessage;
+  private String retrievedEtag;
   private Long currentUserId;
   private int lastStatusCode;
+  private List<Integer> concurrentStatusCodes;
+  private List<Long> loadTestUserIds;
+  private long changeCursor;
+  private ConfigurableApplicationContext secondInstance;
 
   private String baseUrl() {
     return "http://localhost:" + serverPort;
   }
 
+  private static ObjectMapper binaryMapper(String mediaType) {
+    return switch (mediaType) {
+      case "application/cbor" -> new CBORMapper();
+      case "application/x-jackson-smile" -> new SmileMapper();
+      default -> throw new IllegalArgumentException("Not a binary format: " + mediaType);
+    };
+  }
+
   @Given("the application is running")
   public void theApplicationIsRunning() {
     log.info("Checking if application is running at {}", baseUrl());
@@ -89,11 +175,69 @@ public class UserSteps {
     }
   }
 
+  @Given("{int} users exist")
+  public void usersExist(int count) {
+    List<User> users = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      users.add(new User("Load User " + i, "load" + i + "@example.com"));
+    }
+    loadTestUserIds = userRepository.saveAll(users).stream().map(User::getId).toList();
+  }
+
   @Given("I want to create {int} users")
   public void iWantToCreateUsers(int count) {
     // no-op; just planning
   }
 
+  @Given("the text index has been rebuilt")
+  public void theTextIndexHasBeenRebuilt() {
+    userTextIndex.rebuild();
+  }
+
+  @Given("the user cache has been warmed up")
+  public void theUserCacheHasBeenWarmedUp() {
+    // Same work as on startup with app.cache.warm-up.enabled (off in the test profile)
+    userCache.clear();
+    new UserCacheWarmer(userRepository, userCache, userCacheProperties)
+        .afterSingletonsInstantiated();
+  }
+
+  @Given("the SQL statement counter is reset")
+  public void theSQLStatementCounterIsReset() {
+    statistics().clear();
+  }
+
+  @Given("a second instance of the application runs with the {string} profile")
+  public void aSecondInstanceRunsWithTheProfile(String profile) {
+    // Own in-memory database: the shared one would be dropped when this instance stops
+    secondInstance = new SpringApplicationBuilder(SpringBootAppWithCucumberApplication.class)
+        .profiles("test", profile)
+        .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:" + profile);
+  }
+
+  @After
+  public void stopSecondInstance() {
+    if (secondInstance != null) {
+      secondInstance.close();
+      secondInstance = null;
+    }
+  }
+
+  @Given("I remember the reads routed to the primary")
+  public void iRememberTheReadsRoutedToThePrimary() {
+    primaryReadsBefore = primaryReads();
+  }
+
+  @Given("I remember the latest user change")
+  public void iRememberTheLatestUserChange() {
+    UserChangeCursor cursor = restClient.get()
+        .uri(baseUrl() + "/api/users/changes/latest")
+        .retrieve()
+        .body(UserChangeCursor.class);
+    assertNotNull(cursor);
+    changeCursor = cursor.seq();
+  }
+
   @When("I create the user via REST API")
   public void iCreateTheUserViaRESTAPI() {
     try {
@@ -104,6 +248,7 @@ public class UserSteps {
           .toEntity(User.class);
 
       lastStatusCode = userResponse.getStatusCode().value();
+      currentUserId = userResponse.getBody() == null ? null : userResponse.getBody().getId();
     } catch (HttpClientErrorException | HttpServerErrorException ex) {
       lastStatusCode = ex.getStatusCode().value();
       lastErrorMessage = ex.getResponseBodyAsString();
@@ -132,6 +277,88 @@ public class UserSteps {
     }
   }
 
+  @When("{int} clients concurrently create a user with name {string} and email {string}")
+  public void clientsConcurrentlyCreateAUser(int clients, String name, String email)
+      throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> futures = new ArrayList<>();
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(clients)) {
+      for (int i = 0; i < clients; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          try {
+            return restClient.post()
+                .uri(baseUrl() + "/api/users")
+                .body(new User(name, email))
+                .retrieve()
+                .toBodilessEntity()
+                .getStatusCode().value();
+          } catch (HttpClientErrorException | HttpServerErrorException ex) {
+            return ex.getStatusCode().value();
+          }
+        }));
+      }
+      // Release all clients at once to maximize the overlap
+      start.countDown();
+
+      concurrentStatusCodes = new ArrayList<>();
+      for (Future<Integer> future : futures) {
+        concurrentStatusCodes.add(future.get());
+      }
+    }
+  }
+
+  @When("{int} clients each retrieve a random user {int} times")
+  public void clientsEachRetrieveARandomUserTimes(int clients, int requestsPerClient)
+      throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<long[]>>> futures = new ArrayList<>();
+
+    long begin;
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < clients; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          List<long[]> samples = new ArrayList<>(requestsPerClient);
+          for (int r = 0; r < requestsPerClient; r++) {
+            Long id = loadTestUserIds.get(ThreadLocalRandom.current().nextInt(loadTestUserIds.size()));
+            long requestStart = System.nanoTime();
+            int status;
+            try {
+              status = restClient.get()
+                  .uri(baseUrl() + "/api/users/{id}", id)
+                  .retrieve()
+                  .toBodilessEntity()
+                  .getStatusCode().value();
+            } catch (HttpClientErrorException | HttpServerErrorException ex) {
+              status = ex.getStatusCode().value();
+            }
+            samples.add(new long[]{status, System.nanoTime() - requestStart});
+          }
+          return samples;
+        }));
+      }
+      begin = System.nanoTime();
+      start.countDown();
+
+      concurrentStatusCodes = new ArrayList<>();
+      List<Long> latencies = new ArrayList<>();
+      for (Future<List<long[]>> future : futures) {
+        for (long[] sample : future.get()) {
+          concurrentStatusCodes.add((int) sample[0]);
+          latencies.add(sample[1]);
+        }
+      }
+      long elapsedMillis = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+      Collections.sort(latencies);
+      log.info("Load test ({} threads): {} requests in {} ms = {} req/s, p50={} ms, p99={} ms",
+          Boolean.getBoolean("spring.threads.virtual.enabled") ? "virtual" : "platform",
+          latencies.size(), elapsedMillis, latencies.size() * 1000L / elapsedMillis,
+          percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99));
+    }
+  }
+
   @When("I retrieve the user by ID")
   public void iRetrieveTheUserByID() {
     userResponse = restClient.get()
@@ -140,6 +367,19 @@ public class UserSteps {
         .toEntity(User.class);
 
     lastStatusCode = userResponse.getStatusCode().value();
+    retrievedEtag = userResponse.getHeaders().getETag();
+  }
+
+  @When("I retrieve the user by ID again with its ETag")
+  public void iRetrieveTheUserByIDAgainWithItsETag() {
+    assertNotNull(retrievedEtag, "The first response should carry an ETag");
+    ResponseEntity<User> response = restClient.get()
+        .uri(baseUrl() + "/api/users/{id}", currentUserId)
+        .header(HttpHeaders.IF_NONE_MATCH, retrievedEtag)
+        .retrieve()
+        .toEntity(User.class);
+
+    lastStatusCode = response.getStatusCode().value();
   }
 
   @When("I try to retrieve a user with ID {int}")
@@ -156,6 +396,26 @@ public class UserSteps {
     }
   }
 
+  @When("I retrieve the user by email {string}")
+  public void iRetrieveTheUserByEmail(String email) {
+    userResponse = restClient.get()
+        .uri(baseUrl() + "/api/users/by-email?email={email}", email)
+        .retrieve()
+        .toEntity(User.class);
+
+    lastStatusCode = userResponse.getStatusCode().value();
+  }
+
+  @When("I try to retrieve the user by email {string}")
+  public void iTryToRetrieveTheUserByEmail(String email) {
+    try {
+      iRetrieveTheUserByEmail(email);
+    } catch (HttpClientErrorException ex) {
+      lastStatusCode = ex.getStatusCode().value();
+      lastErrorMessage = ex.getResponseBodyAsString();
+    }
+  }
+
   @When("I retrieve all users")
   public void iRetrieveAllUsers() {
     usersResponse = restClient.get()
@@ -166,6 +426,362 @@ public class UserSteps {
     lastStatusCode = usersResponse.getStatusCode().value();
   }
 
+  @When("I retrieve users with limit {int}")
+  public void iRetrieveUsersWithLimit(int limit) {
+    usersResponse = restClient.get()
+        .uri(baseUrl() + "/api/users?limit={limit}", limit)
+        .retrieve()
+        .toEntity(User[].class);
+
+    lastStatusCode = usersResponse.getStatusCode().value();
+  }
+
+  @When("I follow the next page link")
+  public void iFollowTheNextPageLink() {
+    String link = usersResponse.getHeaders().getFirst(HttpHeaders.LINK);
+    assertNotNull(link, "Response should have a Link header");
+    String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+    usersResponse = restClient.get()
+        .uri(next)
+        .retrieve()
+        .toEntity(User[].class);
+
+    lastStatusCode = usersResponse.getStatusCode().value();
+  }
+
+  @When("I search users with {string}")
+  public void iSearchUsersWith(String query) {
+    usersResponse = restClient.get()
+        .uri(baseUrl() + "/api/users/search?" + query)
+        .retrieve()
+        .toEntity(User[].class);
+
+    lastStatusCode = usersResponse.getStatusCode().value();
+  }
+
+  @When("I retrieve users with fields {string}")
+  @SuppressWarnings("unchecked")
+  public void iRetrieveUsersWithFields(String fields) {
+    try {
+      fieldsResponse = restClient.get()
+          .uri(baseUrl() + "/api/users?fields={fields}", fields)
+          .retrieve()
+          .toEntity((Class<Map<String, Object>[]>) (Class<?>) Map[].class);
+      lastStatusCode = fieldsResponse.getStatusCode().value();
+    } catch (HttpClientErrorException ex) {
+      lastStatusCode = ex.getStatusCode().value();
+      lastErrorMessage = ex.getResponseBodyAsString();
+    }
+  }
+
+  @When("I stream all users as NDJSON")
+  public void iStreamAllUsersAsNDJSON() {
+    rawResponse = restClient.get()
+        .uri(baseUrl() + "/api/users/stream")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .retrieve()
+        .toEntity(String.class);
+
+    lastStatusCode = rawResponse.getStatusCode().value();
+  }
+
+  @When("I stream all users reactively as {string}")
+  public void iStreamAllUsersReactivelyAs(String mediaType) {
+    rawResponse = restClient.get()
+        .uri(baseUrl() + "/api/users/reactive")
+        .accept(MediaType.parseMediaType(mediaType))
+        .retrieve()
+        .toEntity(String.class);
+
+    lastStatusCode = rawResponse.getStatusCode().value();
+  }
+
+  @When("I bulk import the following users:")
+  public void iBulkImportTheFollowingUsers(DataTable dataTable) {
+    List<User> users = dataTable.asMaps().stream()
+        .map(row -> new User(row.get("name"), row.get("email")))
+        .toList();
+
+    importResponse = restClient.post()
+        .uri(baseUrl() + "/api/users/bulk")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(users)
+        .retrieve()
+        .toEntity(BulkImportResult.class);
+
+    lastStatusCode = importResponse.getStatusCode().value();
+  }
+
+  @When("I bulk import a chunk rejected by the database followed by a row reusing one of its emails")
+  public void iBulkImportARejectedChunkFollowedByARowReusingOneOfItsEmails() {
+    List<User> users = new ArrayList<>();
+    // Valid for the API, too long for the name column: the whole chunk is rolled back
+    users.add(new User("x".repeat(256), "too-long@example.com"));
+    for (int i = 1; i < UserImportService.CHUNK_SIZE; i++) {
+      users.add(new User("Chunk User " + i, "chunk" + i + "@example.com"));
+    }
+    users.add(new User("Chunk Retry", "chunk1@example.com"));
+
+    importResponse = restClient.post()
+        .uri(baseUrl() + "/api/users/bulk")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(users)
+        .retrieve()
+        .toEntity(BulkImportResult.class);
+
+    lastStatusCode = importResponse.getStatusCode().value();
+  }
+
+  @When("I bulk import the following users as {string}:")
+  public void iBulkImportTheFollowingUsersAs(String mediaType, DataTable dataTable) {
+    List<User> users = dataTable.asMaps().stream()
+        .map(row -> new User(row.get("name"), row.get("email")))
+        .toList();
+
+    importResponse = restClient.post()
+        .uri(baseUrl() + "/api/users/bulk")
+        .contentType(MediaType.parseMediaType(mediaType))
+        .body(binaryMapper(mediaType).writeValueAsBytes(users))
+        .retrieve()
+        .toEntity(BulkImportResult.class);
+
+    lastStatusCode = importResponse.getStatusCode().value();
+  }
+
+  @When("I retrieve all users as {string}")
+  public void iRetrieveAllUsersAs(String mediaType) {
+    ResponseEntity<byte[]> response = restClient.get()
+        .uri(baseUrl() + "/api/users")
+        .accept(MediaType.parseMediaType(mediaType))
+        .retrieve()
+        .toEntity(byte[].class);
+
+    User[] users = binaryMapper(mediaType).readValue(response.getBody(), User[].class);
+    usersResponse = new ResponseEntity<>(users, response.getHeaders(), response.getStatusCode());
+    lastStatusCode = response.getStatusCode().value();
+  }
+
+  @When("I stream all users as a CBOR sequence")
+  public void iStreamAllUsersAsACborSequence() {
+    ResponseEntity<byte[]> response = restClient.get()
+        .uri(baseUrl() + "/api/users/stream")
+        .accept(MediaType.parseMediaType("application/cbor-seq"))
+        .retrieve()
+        .toEntity(byte[].class);
+
+    List<User> users = new ArrayList<>();
+    try (MappingIterator<User> items = new CBORMapper().readerFor(User.class)
+        .readValues(response.getBody())) {
+      items.forEachRemaining(users::add);
+    }
+    usersResponse = new ResponseEntity<>(users.toArray(User[]::new), response.getHeaders(),
+        response.getStatusCode());
+    lastStatusCode = response.getStatusCode().value();
+  }
+
+  @When("I stream all users as a gzip compressed JSON array")
+  public void iStreamAllUsersAsAGzipCompressedJsonArray() throws IOException {
+    ResponseEntity<byte[]> response = restClient.get()
+        .uri(baseUrl() + "/api/users/stream")
+        .accept(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .retrieve()
+        .toEntity(byte[].class);
+
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING),
+        "The response should be gzip compressed");
+    byte[] json;
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+      json = in.readAllBytes();
+    }
+    log.info("Streamed JSON array: {} bytes, {} bytes compressed", json.length,
+        response.getBody().length);
+    usersResponse = new ResponseEntity<>(new JsonMapper().readValue(json, User[].class),
+        response.getHeaders(), response.getStatusCode());
+    lastStatusCode = response.getStatusCode().value();
+  }
+
+  @When("I export all users as {string}")
+  public void iExportAllUsersAs(String format) {
+    ResponseEntity<ExportJob> response = restClient.post()
+        .uri(baseUrl() + "/api/users/exports?format={format}", format)
+        .retrieve()
+        .toEntity(ExportJob.class);
+
+    assertNotNull(response.getHeaders().getLocation(), "The job URL should be returned");
+    exportJob = response.getBody();
+    lastStatusCode = response.getStatusCode().value();
+  }
+
+  @When("I wait for the export to complete")
+  public void iWaitForTheExportToComplete() throws InterruptedException {
+    long deadline = System.nanoTime() + 10_000_000_000L;
+    while (exportJob.status() != ExportJob.Status.COMPLETED
+        && exportJob.status() != ExportJob.Status.FAILED && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+      exportJob = restClient.get()
+          .uri(baseUrl() + "/api/users/exports/{id}", exportJob.id())
+          .retrieve()
+          .body(ExportJob.class);
+    }
+    assertEquals(ExportJob.Status.COMPLETED, exportJob.status(),
+        "The export should complete: " + exportJob.error());
+  }
+
+  @When("I download the export")
+  public void iDownloadTheExport() {
+    rawResponse = restClient.get()
+        .uri(baseUrl() + "/api/users/exports/{id}/file", exportJob.id())
+        .retrieve()
+        .toEntity(String.class);
+
+    assertTrue(MediaType.parseMediaType(exportJob.format().mediaType())
+        .isCompatibleWith(rawResponse.getHeaders().getContentType()));
+    lastStatusCode = rawResponse.getStatusCode().value();
+  }
+
+  @When("I try to get the status of export {string}")
+  public void iTryToGetTheStatusOfExport(String id) {
+    try {
+      restClient.get()
+          .uri(baseUrl() + "/api/users/exports/{id}", id)
+          .retrieve()
+          .toEntity(ExportJob.class);
+    } catch (HttpClientErrorException ex) {
+      lastStatusCode = ex.getStatusCode().value();
+      lastErrorMessage = ex.getResponseBodyAsString();
+    }
+  }
+
+  @When("I queue the creation of {int} users through the write-behind queue")
+  public void iQueueTheCreationOfUsers(int count) {
+    List<User> users = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      users.add(new User("Queued User " + i, "queued" + i + "@example.com"));
+    }
+    queueCreations(users);
+  }
+
+  @When("I queue the creation of users with emails {string}")
+  public void iQueueTheCreationOfUsersWithEmails(String emails) {
+    queueCreations(Arrays.stream(emails.split(",")).map(email -> new User("Queued User", email))
+        .toList());
+  }
+
+  private void queueCreations(List<User> users) {
+    commitsBefore = writeBehindCommits();
+    fallbacksBefore = writeBehindFallbacks();
+    queuedWrites = users.stream().map(userWriteBehindService::createUser).toList();
+    // Wait for every write, successful or not
+    CompletableFuture.allOf(queuedWrites.toArray(CompletableFuture[]::new))
+        .exceptionally(ex -> null)
+        .join();
+  }
+
+  private long writeBehindCommits() {
+    return meterRegistry.get("user.write-behind.batch.size").summary().count();
+  }
+
+  private double writeBehindFallbacks() {
+    return meterRegistry.get("user.write-behind.fallbacks").counter().count();
+  }
+
+  private double primaryReads() {
+    return meterRegistry.get("user.datasource.routed").tag("target", "primary").counter().count();
+  }
+
+  @When("client {string} retrieves the user by email {string} {int} time(s)")
+  public void clientRetrievesTheUserByEmailTimes(String client, String email, int times) {
+    clientResponses = new ArrayList<>(times);
+    for (int i = 0; i < times; i++) {
+      clientResponses.add(restClient.get()
+          .uri(baseUrl() + "/api/users/by-email?email={email}", email)
+          .header("X-Client-Id", client)
+          .retrieve()
+          .onStatus(status -> status.value() == 429, (request, response) -> { })
+          .toEntity(String.class));
+    }
+    lastStatusCode = clientResponses.getLast().getStatusCode().value();
+  }
+
+  @When("{int} concurrent lookups of the same uncached user wait for a slow load")
+  public void concurrentLookupsOfTheSameUncachedUserWaitForASlowLoad(int lookups)
+      throws Exception {
+    UserSummary user = new UserSummary(42L, "Slow User", "slow@example.com", true, 0L);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    Function<Long, UserSummary> slowLoader = id -> {
+      loads.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(ex);
+      }
+      return user;
+    };
+
+    double collapsedBefore = collapsedUserLoads();
+    try (ExecutorService executor = Executors.newFixedThreadPool(lookups)) {
+      List<Future<UserSummary>> futures = new ArrayList<>();
+      for (int i = 0; i < lookups; i++) {
+        futures.add(executor.submit(() -> userCache.getUser(user.id(), slowLoader)));
+      }
+      // Hold the load until every other lookup has joined it
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (collapsedUserLoads() - collapsedBefore < lookups - 1
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      release.countDown();
+
+      lookupResults = new ArrayList<>();
+      for (Future<UserSummary> future : futures) {
+        lookupResults.add(future.get());
+      }
+    }
+    lookupLoads = loads.get();
+  }
+
+  private double collapsedUserLoads() {
+    return meterRegistry.get("user.cache.collapsed-loads").tag("cache", UserCache.USERS)
+        .counter().count();
+  }
+
+  @When("I retrieve each of these users by ID")
+  public void iRetrieveEachOfTheseUsersByID() {
+    for (Long id : loadTestUserIds) {
+      lastStatusCode = restClient.get()
+          .uri(baseUrl() + "/api/users/{id}", id)
+          .retrieve()
+          .toBodilessEntity()
+          .getStatusCode().value();
+      assertEquals(200, lastStatusCode);
+    }
+  }
+
+  @When("I scrape the Prometheus endpoint")
+  public void iScrapeThePrometheusEndpoint() {
+    rawResponse = restClient.get()
+        .uri(baseUrl() + "/actuator/prometheus")
+        .retrieve()
+        .toEntity(String.class);
+
+    lastStatusCode = rawResponse.getStatusCode().value();
+  }
+
+  @When("I scrape the Prometheus endpoint of the second instance")
+  public void iScrapeThePrometheusEndpointOfTheSecondInstance() {
+    rawResponse = restClient.get()
+        .uri("http://localhost:" + secondInstance.getEnvironment()
+            .getRequiredProperty("local.server.port") + "/actuator/prometheus")
+        .retrieve()
+        .toEntity(String.class);
+
+    lastStatusCode = rawResponse.getStatusCode().value();
+  }
+
   @When("I update the user with name {string} and email {string}")
   public void iUpdateTheUserWithNameAndEmail(String name, String email) {
     User updateUser = new User(name, email);
@@ -179,6 +795,22 @@ public class UserSteps {
     lastStatusCode = userResponse.getStatusCode().value();
   }
 
+  @When("I try to update the user with name {string} and email {string} if it is unchanged")
+  public void iTryToUpdateTheUserIfItIsUnchanged(String name, String email) {
+    try {
+      userResponse = restClient.put()
+          .uri(baseUrl() + "/api/users/{id}", currentUserId)
+          .header(HttpHeaders.IF_MATCH, retrievedEtag)
+          .body(new User(name, email))
+          .retrieve()
+          .toEntity(User.class);
+      lastStatusCode = userResponse.getStatusCode().value();
+    } catch (HttpClientErrorException ex) {
+      lastStatusCode = ex.getStatusCode().value();
+      lastErrorMessage = ex.getResponseBodyAsString();
+    }
+  }
+
   @When("I delete the user")
   public void iDeleteTheUser() {
     ResponseEntity<Void> response = restClient.delete()
@@ -199,6 +831,45 @@ public class UserSteps {
     lastStatusCode = userResponse.getStatusCode().value();
   }
 
+  @When("I deactivate the user without asking for the result")
+  public void iDeactivateTheUserWithoutAskingForTheResult() {
+    ResponseEntity<Void> response = restClient.patch()
+        .uri(baseUrl() + "/api/users/{id}/deactivate", currentUserId)
+        .header("Prefer", "return=minimal")
+        .retrieve()
+        .toBodilessEntity();
+
+    lastStatusCode = response.getStatusCode().value();
+  }
+
+  @When("I try to delete a user with ID {int}")
+  public void iTryToDeleteAUserWithID(int userId) {
+    try {
+      ResponseEntity<Void> response = restClient.delete()
+          .uri(baseUrl() + "/api/users/{id}", userId)
+          .retrieve()
+          .toBodilessEntity();
+      lastStatusCode = response.getStatusCode().value();
+    } catch (HttpClientErrorException ex) {
+      lastStatusCode = ex.getStatusCode().value();
+      lastErrorMessage = ex.getResponseBodyAsString();
+    }
+  }
+
+  @When("I deactivate all users and the unknown ID {long}")
+  public void iDeactivateAllUsersAndTheUnknownID(long unknownId) {
+    List<Long> ids = new ArrayList<>(userRepository.findAll().stream().map(User::getId).toList());
+    ids.add(unknownId);
+
+    deactivationResponse = restClient.patch()
+        .uri(baseUrl() + "/api/users/deactivate")
+        .body(ids)
+        .retrieve()
+        .toEntity(BulkDeactivationResult.class);
+
+    lastStatusCode = deactivationResponse.getStatusCode().value();
+  }
+
   @When("I create all users sequentially")
   public void iCreateAllUsersSequentially() {
     for (int i = 1; i <= 5; i++) {
@@ -212,6 +883,20 @@ public class UserSteps {
     }
   }
 
+  @When("I save {int} users with saveAll")
+  public void iSaveUsersWithSaveAll(int count) {
+    List<User> users = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      users.add(new User("Batch User " + i, "batch" + i + "@example.com"));
+    }
+
+    long start = System.nanoTime();
+    userRepository.saveAll(users);
+    long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    log.info("saveAll inserted {} users in {} ms ({} users/s)",
+        count, elapsedMillis, count * 1000L / elapsedMillis);
+  }
+
   @Then("the user should be created with status {int}")
   public void theUserShouldBeCreatedWithStatus(int expectedStatus) {
     assertEquals(expectedStatus, lastStatusCode);
@@ -222,6 +907,31 @@ public class UserSteps {
     assertEquals(expectedStatus, lastStatusCode);
   }
 
+  @Then("{int} creation(s) should succeed and {int} should fail with status {int}")
+  public void creationsShouldSucceedAndShouldFailWithStatus(int succeeded, int failed,
+      int failedStatus) {
+    assertEquals(succeeded, concurrentStatusCodes.stream().filter(code -> code == 201).count(),
+        "Status codes: " + concurrentStatusCodes);
+    assertEquals(failed, concurrentStatusCodes.stream().filter(code -> code == failedStatus).count(),
+        "Status codes: " + concurrentStatusCodes);
+  }
+
+  @Then("every request should succeed or be shed with status {int}")
+  public void everyRequestShouldSucceedOrBeShedWithStatus(int shedStatus) {
+    long shed = concurrentStatusCodes.stream().filter(code -> code == shedStatus).count();
+    log.info("Requests shed: {}", shed);
+    assertTrue(concurrentStatusCodes.stream().allMatch(code -> code == 200 || code == shedStatus),
+        "Unexpected status codes");
+  }
+
+  @Then("at most {int} SQL statements should have been executed")
+  public void atMostSQLStatementsShouldHaveBeenExecuted(int maxStatements) {
+    long statements = statistics().getPrepareStatementCount();
+    log.info("SQL statements executed: {}", statements);
+    assertTrue(statements <= maxStatements,
+        "Expected at most " + maxStatements + " statements but got " + statements);
+  }
+
   @Then("the user should have an ID")
   public void theUserShouldHaveAnID() {
     assertNotNull(userResponse.getBody(), "Response body should not be null");
@@ -272,12 +982,226 @@ public class UserSteps {
     assertEquals(expectedCount, usersResponse.getBody().length);
   }
 
+  @Then("the users found should be {string}")
+  public void theUsersFoundShouldBe(String names) {
+    assertNotNull(usersResponse.getBody());
+    List<String> found = Arrays.stream(usersResponse.getBody()).map(User::getName).toList();
+    assertEquals(List.of(names.split(",")), found);
+  }
+
+  @Then("the response content type should be {string}")
+  public void theResponseContentTypeShouldBe(String mediaType) {
+    assertEquals(MediaType.parseMediaType(mediaType),
+        usersResponse.getHeaders().getContentType());
+  }
+
+  @Then("the response should link to the next page")
+  public void theResponseShouldLinkToTheNextPage() {
+    String link = usersResponse.getHeaders().getFirst(HttpHeaders.LINK);
+    assertNotNull(link, "Response should have a Link header");
+    assertTrue(link.contains("rel=\"next\""), "Link header should point to the next page");
+  }
+
+  @Then("the response should not link to a next page")
+  public void theResponseShouldNotLinkToANextPage() {
+    assertNull(usersResponse.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Then("every user should only have the fields {string}")
+  public void everyUserShouldOnlyHaveTheFields(String fields) {
+    assertNotNull(fieldsResponse.getBody());
+    assertTrue(fieldsResponse.getBody().length > 0, "Response should contain users");
+    for (Map<String, Object> user : fieldsResponse.getBody()) {
+      assertEquals(List.of(fields.split(",")), List.copyOf(user.keySet()));
+    }
+  }
+
+  @Then("I should receive {int} NDJSON lines")
+  public void iShouldReceiveNDJSONLines(int expectedCount) {
+    assertNotNull(rawResponse.getBody());
+    assertEquals(expectedCount, rawResponse.getBody().lines().filter(line -> !line.isBlank()).count());
+  }
+
+  @Then("the stream should contain {int} users in ID order")
+  public void theStreamShouldContainUsersInIdOrder(int expectedCount) {
+    assertNotNull(rawResponse.getBody());
+    // One JSON object per line, prefixed with "data:" for Server-Sent Events
+    JsonMapper mapper = new JsonMapper();
+    List<Long> ids = rawResponse.getBody().lines()
+        .map(line -> line.startsWith("data:") ? line.substring(5) : line)
+        .filter(line -> line.startsWith("{"))
+        .map(line -> mapper.readValue(line, UserSummary.class).id())
+        .toList();
+    assertEquals(expectedCount, ids.size());
+    assertEquals(ids.stream().sorted().toList(), ids, "Users should be in ID order");
+  }
+
+  @Then("the export should report {int} users")
+  public void theExportShouldReportUsers(int expectedCount) {
+    assertEquals(expectedCount, exportJob.rows());
+  }
+
+  @Then("the downloaded file should have {int} lines starting with {string}")
+  public void theDownloadedFileShouldHaveLinesStartingWith(int expectedCount, String firstLine) {
+    assertNotNull(rawResponse.getBody());
+    List<String> lines = rawResponse.getBody().lines().toList();
+    assertEquals(expectedCount, lines.size());
+    assertTrue(lines.getFirst().startsWith(firstLine), "Unexpected first line: " + lines.getFirst());
+  }
+
+  @Then("{int} queued write(s) should succeed and {int} should fail")
+  public void queuedWritesShouldSucceedAndShouldFail(int succeeded, int failed) {
+    assertEquals(succeeded, queuedWrites.stream().filter(write -> !write.isCompletedExceptionally())
+        .count());
+    assertEquals(failed, queuedWrites.stream().filter(CompletableFuture::isCompletedExceptionally)
+        .count());
+  }
+
+  @Then("a rolled back group commit should have been replayed one write at a time")
+  public void aRolledBackGroupCommitShouldHaveBeenReplayed() {
+    assertTrue(writeBehindFallbacks() > fallbacksBefore,
+        "The failing write should have been committed in a group first");
+  }
+
+  @Then("the connection pool of the second instance should have {int} connections per core plus {int}")
+  public void theConnectionPoolOfTheSecondInstanceShouldHave(int perCore, int extra)
+      throws SQLException {
+    HikariDataSource pool = secondInstance.getBean(DataSource.class)
+        .unwrap(HikariDataSource.class);
+    int cores = Runtime.getRuntime().availableProcessors();
+    assertEquals(cores * perCore + extra, pool.getMaximumPoolSize());
+  }
+
+  @Then("the user should have been reloaded from the primary")
+  public void theUserShouldHaveBeenReloadedFromThePrimary() {
+    assertTrue(primaryReads() > primaryReadsBefore,
+        "The cache miss should have read the primary, not a replica");
+  }
+
+  @Then("the queued writes should have been committed in fewer than {int} transactions")
+  public void theQueuedWritesShouldHaveBeenCommittedInFewerThan(int commits) {
+    long groupCommits = writeBehindCommits() - commitsBefore;
+    log.info("{} queued writes committed in {} group commits", queuedWrites.size(), groupCommits);
+    assertTrue(groupCommits < commits, "Group commits: " + groupCommits);
+  }
+
+  @Then("the first {int} requests should succeed and the others be rejected with status 429")
+  public void theFirstRequestsShouldSucceedAndTheOthersBeRejected(int allowed) {
+    for (int i = 0; i < clientResponses.size(); i++) {
+      ResponseEntity<String> response = clientResponses.get(i);
+      if (i < allowed) {
+        assertEquals(200, response.getStatusCode().value(), "Request " + (i + 1));
+      } else {
+        assertEquals(429, response.getStatusCode().value(), "Request " + (i + 1));
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER),
+            "A rejected request should say when to retry");
+      }
+    }
+  }
+
+  @Then("the user should have been loaded once for all {int} lookups")
+  public void theUserShouldHaveBeenLoadedOnceForAllLookups(int lookups) {
+    assertEquals(1, lookupLoads, "Concurrent misses should share one load");
+    assertEquals(lookups, lookupResults.size());
+    assertTrue(lookupResults.stream().allMatch(user -> "Slow User".equals(user.name())));
+  }
+
+  @Then("the import should report {int} created and {int} failed")
+  public void theImportShouldReportCreatedAndFailed(int created, int failed) {
+    assertNotNull(importResponse.getBody());
+    assertEquals(created, importResponse.getBody().created());
+    assertEquals(failed, importResponse.getBody().failed());
+  }
+
+  @Then("row {int} should have status {string}")
+  public void rowShouldHaveStatus(int index, String status) {
+    assertNotNull(importResponse.getBody());
+    assertEquals(status, importResponse.getBody().rows().get(index).status().name());
+  }
+
+  @Then("the changes of the user since then should be {string}")
+  public void theChangesOfTheUserSinceThenShouldBe(String expected) {
+    List<String> expectedTypes = List.of(expected.split(","));
+    assertEquals(expectedTypes, changeTypesSince(
+        change -> change.userId().equals(currentUserId), expectedTypes.size()));
+  }
+
+  @Then("the changes of {string} since then should be {string}")
+  public void theChangesOfEmailSinceThenShouldBe(String email, String expected) {
+    List<String> expectedTypes = List.of(expected.split(","));
+    assertEquals(expectedTypes, changeTypesSince(
+        change -> email.equals(change.email()), expectedTypes.size()));
+  }
+
+  /**
+   * Follow the change stream from the remembered position with long polls (each answers as
+   * soon as at least one change is published) until {@code count} matching changes arrived.
+   */
+  private List<String> changeTypesSince(Predicate<UserChangeEvent> filter, int count) {
+    List<String> types = new ArrayList<>();
+    long since = changeCursor;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (types.size() < count && System.nanoTime() < deadline) {
+      UserChangeEvent[] changes = restClient.get()
+          .uri(baseUrl() + "/api/users/changes?since={since}", since)
+          .retrieve()
+          .body(UserChangeEvent[].class);
+      assertNotNull(changes);
+      for (UserChangeEvent change : changes) {
+        if (filter.test(change)) {
+          types.add(change.type().name());
+        }
+        since = change.seq();
+      }
+    }
+    return types;
+  }
+
+  @Then("the changes of the user pushed since then should be {string}")
+  public void theChangesOfTheUserPushedSinceThenShouldBe(String expected) throws Exception {
+    List<String> expectedTypes = List.of(expected.split(","));
+    // Server-Sent Events: read "data:" lines until the expected changes have arrived
+    List<String> types = CompletableFuture.supplyAsync(() -> restClient.get()
+        .uri(baseUrl() + "/api/users/changes?since={since}", changeCursor)
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange((request, response) -> {
+          List<String> received = new ArrayList<>();
+          BufferedReader reader = new BufferedReader(
+              new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+          String line;
+          while (received.size() < expectedTypes.size() && (line = reader.readLine()) != null) {
+            if (line.startsWith("data:")) {
+              UserChangeEvent change = new JsonMapper().readValue(line.substring(5),
+                  UserChangeEvent.class);
+              if (change.userId().equals(currentUserId)) {
+                received.add(change.type().name());
+              }
+            }
+          }
+          return received;
+        })).get(10, TimeUnit.SECONDS);
+    assertEquals(expectedTypes, types);
+  }
+
+  @Then("the metrics should contain {string}")
+  public void theMetricsShouldContain(String expected) {
+    assertNotNull(rawResponse.getBody());
+    assertTrue(rawResponse.getBody().contains(expected), "Metrics should contain " + expected);
+  }
+
   @Then("the updated user should have name {string}")
   public void theUpdatedUserShouldHaveName(String expectedName) {
     assertNotNull(userResponse.getBody());
     assertEquals(expectedName, userResponse.getBody().getName());
   }
 
+  @Then("the updated user should have a new ETag")
+  public void theUpdatedUserShouldHaveANewETag() {
+    String etag = userResponse.getHeaders().getETag();
+    assertNotNull(etag, "The update response should carry an ETag");
+    assertNotEquals(retrievedEtag, etag);
+  }
+
   @Then("the updated user should have email {string}")
   public void theUpdatedUserShouldHaveEmail(String expectedEmail) {
     assertNotNull(userResponse.getBody());
@@ -296,6 +1220,26 @@ public class UserSteps {
     assertFalse(userResponse.getBody().isActive(), "User should be inactive");
   }
 
+  @Then("the user should be inactive in the database")
+  public void theUserShouldBeInactiveInTheDatabase() {
+    User user = userRepository.findById(currentUserId).orElseThrow();
+    assertFalse(user.isActive(), "User should be inactive");
+  }
+
+  @Then("the deactivation should report {int} deactivated and {int} not found")
+  public void theDeactivationShouldReport(int deactivated, int notFound) {
+    BulkDeactivationResult result = deactivationResponse.getBody();
+    assertNotNull(result);
+    assertEquals(deactivated, result.deactivated());
+    assertEquals(notFound, result.notFound());
+  }
+
+  @Then("no user should be active")
+  public void noUserShouldBeActive() {
+    assertTrue(userRepository.findAll().stream().noneMatch(User::isActive),
+        "All users should be inactive");
+  }
+
   @Then("all users should be created successfully")
   public void allUsersShouldBeCreatedSuccessfully() {
     // no-op
@@ -306,5 +1250,13 @@ public class UserSteps {
     long actualCount = userRepository.count();
     assertEquals(expectedCount, actualCount);
   }
-}
 
+  private static double percentileMillis(List<Long> sortedNanos, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+    return sortedNanos.get(Math.max(0, index)) / 1_000_000.0;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+}
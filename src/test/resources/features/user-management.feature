@@ -23,6 +23,15 @@ Feature: User Management
     Then the creation should fail with status 400
     And the error message should contain "Email already exists"
 
+  @Regression
+  Scenario: Concurrent creates with the same email
+    Given the SQL statement counter is reset
+    When 10 clients concurrently create a user with name "Racer" and email "race@example.com"
+    Then 1 creation should succeed and 9 should fail with status 400
+    And the database should contain 1 users
+    # 10 INSERTs, 1 sequence call and the outbox INSERT of the user that was created
+    And at most 12 SQL statements should have been executed
+
   @Regression
   Scenario: Successfully retrieve user by ID
     Given a user exists with name "Alice Brown" and email "alice@example.com"
@@ -48,6 +57,324 @@ Feature: User Management
     Then the response status should be 200
     And I should receive 3 users
 
+  @Regression
+  Scenario: Retrieve users page by page
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Bob Johnson   | bob@example.com        |
+    When I retrieve users with limit 2
+    Then the response status should be 200
+    And I should receive 2 users
+    And the response should link to the next page
+    When I follow the next page link
+    Then I should receive 1 users
+    And the response should not link to a next page
+
+  @Regression
+  Scenario: Stream all users as NDJSON
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Bob Johnson   | bob@example.com        |
+    When I stream all users as NDJSON
+    Then the response status should be 200
+    And I should receive 3 NDJSON lines
+
+  @Regression
+  Scenario Outline: Stream all users reactively, page after page, as <format>
+    Given 250 users exist
+    When I stream all users reactively as "<format>"
+    Then the response status should be 200
+    And the stream should contain 250 users in ID order
+
+    Examples:
+      | format               |
+      | application/x-ndjson |
+      | text/event-stream    |
+
+  @Regression
+  Scenario: Bulk import reports the outcome of every row
+    Given a user already exists with name "Jane Smith" and email "jane@example.com"
+    When I bulk import the following users:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Again    | jane@example.com       |
+      | John Twin     | john@example.com       |
+      | Bad Email     | not-an-email           |
+      | Bob Johnson   | bob@example.com        |
+    Then the response status should be 200
+    And the import should report 2 created and 3 failed
+    And row 1 should have status "DUPLICATE"
+    And row 2 should have status "DUPLICATE"
+    And row 3 should have status "INVALID"
+    And the database should contain 3 users
+
+  @Regression
+  Scenario: Emails of a chunk rejected by the database can be imported by a later row
+    When I bulk import a chunk rejected by the database followed by a row reusing one of its emails
+    Then the response status should be 200
+    And the import should report 1 created and 500 failed
+    And row 1 should have status "FAILED"
+    And row 500 should have status "CREATED"
+    And the database should contain 1 users
+
+  @Regression
+  Scenario Outline: Exchange users in a compact binary format
+    When I bulk import the following users as "<format>":
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Bob Johnson   | bob@example.com        |
+    Then the import should report 3 created and 0 failed
+    When I retrieve all users as "<format>"
+    Then the response status should be 200
+    And the response content type should be "<format>"
+    And I should receive 3 users
+
+    Examples:
+      | format                      |
+      | application/cbor            |
+      | application/x-jackson-smile |
+
+  @Regression
+  Scenario: Stream all users as a compressed JSON array
+    Given 500 users exist
+    When I stream all users as a gzip compressed JSON array
+    Then the response status should be 200
+    And the response content type should be "application/json"
+    And I should receive 500 users
+
+  @Regression
+  Scenario Outline: Export all users to a file
+    Given 2500 users exist
+    When I export all users as "<format>"
+    Then the response status should be 202
+    When I wait for the export to complete
+    Then the export should report 2500 users
+    When I download the export
+    Then the response status should be 200
+    And the downloaded file should have <lines> lines starting with "<first line>"
+
+    Examples:
+      | format | lines | first line                   |
+      | CSV    | 2501  | id,name,email,active,version |
+      | NDJSON | 2500  | {"id":                       |
+
+  @Regression
+  Scenario: Status of an unknown export returns 404
+    When I try to get the status of export "unknown"
+    Then the response status should be 404
+
+  @Regression
+  Scenario: Stream all users as a CBOR sequence
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+    When I stream all users as a CBOR sequence
+    Then the response status should be 200
+    And the response content type should be "application/cbor-seq"
+    And I should receive 2 users
+
+  @Regression
+  Scenario: Successfully retrieve user by email
+    Given a user exists with name "Alice Brown" and email "alice@example.com"
+    When I retrieve the user by email "alice@example.com"
+    Then the response status should be 200
+    And the retrieved user should have name "Alice Brown"
+
+  @Regression
+  Scenario: Updated user is not served stale from the cache
+    Given a user exists with name "Tom Wilson" and email "tom@example.com"
+    And I retrieve the user by ID
+    And I retrieve the user by email "tom@example.com"
+    When I update the user with name "Thomas Wilson" and email "thomas@example.com"
+    And I retrieve the user by ID
+    Then the retrieved user should have name "Thomas Wilson"
+    When I try to retrieve the user by email "tom@example.com"
+    Then the response status should be 404
+
+  @Regression
+  Scenario: A client over its budget is rate limited without affecting other clients
+    Given a user exists with name "Alice Brown" and email "alice@example.com"
+    When client "greedy" retrieves the user by email "alice@example.com" 8 times
+    Then the first 5 requests should succeed and the others be rejected with status 429
+    When client "polite" retrieves the user by email "alice@example.com" 1 time
+    Then the response status should be 200
+
+  @Regression
+  Scenario: A warmed up cache serves users without querying the database
+    Given 50 users exist
+    And the user cache has been warmed up
+    And the SQL statement counter is reset
+    When I retrieve each of these users by ID
+    Then at most 0 SQL statements should have been executed
+
+  @Regression
+  Scenario: Concurrent cache misses on the same user share one load
+    When 20 concurrent lookups of the same uncached user wait for a slow load
+    Then the user should have been loaded once for all 20 lookups
+
+  @Regression
+  Scenario: Timings and errors are exposed in Prometheus format
+    Given a user exists with name "Alice Brown" and email "alice@example.com"
+    When I retrieve the user by ID
+    And I try to retrieve a user with ID 999
+    And I scrape the Prometheus endpoint
+    Then the response status should be 200
+    And the metrics should contain "http_server_requests_seconds"
+    And the metrics should contain "user_service_seconds"
+    And the metrics should contain "spring_data_repository_invocations_seconds"
+    And the metrics should contain "user_errors_total{exception=\"UserNotFoundException\""
+
+  @Regression
+  Scenario: Connection pool usage is exposed in Prometheus format
+    Given a user exists with name "Alice Brown" and email "alice@example.com"
+    When I retrieve the user by ID
+    And I scrape the Prometheus endpoint
+    Then the response status should be 200
+    And the metrics should contain "hikaricp_connections_active"
+    And the metrics should contain "hikaricp_connections_idle"
+    And the metrics should contain "hikaricp_connections_pending"
+    And the metrics should contain "hikaricp_connections_acquire_seconds"
+
+  @Regression
+  Scenario: The performance profile sizes the connection pool from the CPU count
+    Given a second instance of the application runs with the "performance" profile
+    When I scrape the Prometheus endpoint of the second instance
+    Then the response status should be 200
+    And the connection pool of the second instance should have 2 connections per core plus 1
+    And the metrics should contain "hikaricp_connections_acquire_seconds_bucket"
+
+  @Regression
+  Scenario: Consumers follow user changes incrementally
+    Given I remember the latest user change
+    And I have user details with name "Carol White" and email "carol@example.com"
+    When I create the user via REST API
+    And I update the user with name "Carol Black" and email "carol@example.com"
+    And I deactivate the user
+    And I delete the user
+    Then the changes of the user since then should be "CREATED,UPDATED,DEACTIVATED,DELETED"
+
+  @Regression
+  Scenario: Bulk imports and bulk deactivations are on the change stream
+    Given I remember the latest user change
+    When I bulk import the following users:
+      | name          | email                  |
+      | Eve Adams     | eve@example.com        |
+      | Frank Moss    | frank@example.com      |
+    And I deactivate all users and the unknown ID 999999
+    Then the changes of "eve@example.com" since then should be "CREATED,DEACTIVATED"
+    And the changes of "frank@example.com" since then should be "CREATED,DEACTIVATED"
+
+  @Regression
+  Scenario: User changes are pushed to subscribers as Server-Sent Events
+    Given I remember the latest user change
+    And I have user details with name "Dan Green" and email "dan@example.com"
+    When I create the user via REST API
+    And I deactivate the user
+    Then the changes of the user pushed since then should be "CREATED,DEACTIVATED"
+
+  @Regression
+  Scenario: Read-only transactions are spread over the read replicas
+    Given 3 users exist
+    When I retrieve all users
+    And I retrieve all users
+    And I scrape the Prometheus endpoint
+    Then the response status should be 200
+    And the metrics should contain "user_datasource_routed_total{target=\"user-replica-1\"}"
+    And the metrics should contain "user_datasource_routed_total{target=\"user-replica-2\"}"
+    And the metrics should contain "hikaricp_connections_active{pool=\"user-replica-1\"}"
+
+  @Regression
+  Scenario: Users evicted from the cache are reloaded from the primary
+    Given a user exists with name "Gail Hunt" and email "gail@example.com"
+    And I remember the reads routed to the primary
+    When I update the user with name "Gail Hunter" and email "gail@example.com"
+    And I retrieve the user by ID
+    Then the response status should be 200
+    And the retrieved user should have name "Gail Hunter"
+    And the user should have been reloaded from the primary
+
+  @Regression
+  Scenario Outline: Search users by email prefix, name and active status
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | John@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Johnny Cash   | johnny@example.com     |
+      | Bob Johnson   | bob@example.com        |
+    And a user exists with name "Joan 100%_Doe" and email "joan@example.com"
+    And I deactivate the user
+    When I search users with "<query>"
+    Then the response status should be 200
+    And the users found should be "<names>"
+
+    Examples:
+      | query                    | names                                         |
+      | email=jo                 | John Doe,Johnny Cash,Joan 100%_Doe            |
+      | email=JOHN               | John Doe,Johnny Cash                          |
+      | name=john                | John Doe,Johnny Cash,Bob Johnson              |
+      | name=0%_                 | Joan 100%_Doe                                 |
+      | email=jo&active=true     | John Doe,Johnny Cash                          |
+      | active=false             | Joan 100%_Doe                                 |
+      | name=doe&active=true     | John Doe                                      |
+
+  @Regression
+  Scenario Outline: Search users by text in name or email
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Johnny Cash   | johnny@example.com     |
+      | Bob Johnson   | bob@example.com        |
+    And the text index has been rebuilt
+    When I search users with "<query>"
+    Then the response status should be 200
+    And the users found should be "<names>"
+
+    Examples:
+      | query                    | names                                         |
+      | q=OHN                    | John Doe,Johnny Cash,Bob Johnson              |
+      | q=jane@                  | Jane Smith                                    |
+      | q=jo                     | John Doe,Johnny Cash,Bob Johnson              |
+      | q=ohn&limit=2            | John Doe,Johnny Cash                          |
+      | q=ohn&name=son           | Bob Johnson                                   |
+
+  @Regression
+  Scenario: Text search follows creates, updates and deletes
+    Given I have user details with name "Tom Wilson" and email "tom@example.com"
+    And I create the user via REST API
+    When I search users with "q=wilson"
+    Then the users found should be "Tom Wilson"
+    When I update the user with name "Thomas Smith" and email "thomas@example.com"
+    And I search users with "q=wilson"
+    Then I should receive 0 users
+    When I search users with "q=smith"
+    Then the users found should be "Thomas Smith"
+    When I delete the user
+    And I search users with "q=smith"
+    Then I should receive 0 users
+
+  @Regression
+  Scenario: Retrieve only some fields of the users
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+    When I retrieve users with fields "email"
+    Then the response status should be 200
+    And every user should only have the fields "id,email"
+
+  @Regression
+  Scenario: Unknown fields are rejected
+    When I retrieve users with fields "password"
+    Then the response status should be 400
+    And the error message should contain "Unknown field"
+
   @Regression
   Scenario: Successfully update user information
     Given a user exists with name "Tom Wilson" and email "tom@example.com"
@@ -56,6 +383,31 @@ Feature: User Management
     And the updated user should have name "Thomas Wilson"
     And the updated user should have email "thomas@example.com"
 
+  @Regression
+  Scenario: Unchanged user is not downloaded again
+    Given a user exists with name "Alice Brown" and email "alice@example.com"
+    And I retrieve the user by ID
+    When I retrieve the user by ID again with its ETag
+    Then the response status should be 304
+
+  @Regression
+  Scenario: Conditional update of an unchanged user
+    Given a user exists with name "Tom Wilson" and email "tom@example.com"
+    And I retrieve the user by ID
+    When I try to update the user with name "Thomas Wilson" and email "thomas@example.com" if it is unchanged
+    Then the response status should be 200
+    And the updated user should have name "Thomas Wilson"
+    And the updated user should have a new ETag
+
+  @Regression
+  Scenario: Conditional update of a concurrently modified user is rejected
+    Given a user exists with name "Tom Wilson" and email "tom@example.com"
+    And I retrieve the user by ID
+    And I update the user with name "Thomas Wilson" and email "thomas@example.com"
+    When I try to update the user with name "Tommy Wilson" and email "tommy@example.com" if it is unchanged
+    Then the response status should be 412
+    And the error message should contain "version mismatch"
+
   @Regression
   Scenario: Successfully delete a user
     Given a user exists with name "Delete Me" and email "delete@example.com"
@@ -70,6 +422,30 @@ Feature: User Management
     Then the response status should be 200
     And the user should be inactive
 
+  @Regression
+  Scenario: Delete a non-existent user returns 404
+    When I try to delete a user with ID 999
+    Then the response status should be 404
+
+  @Regression
+  Scenario: Deactivate a user without reading it back
+    Given a user exists with name "Active User" and email "active@example.com"
+    When I deactivate the user without asking for the result
+    Then the response status should be 204
+    And the user should be inactive in the database
+
+  @Regression
+  Scenario: Deactivate several users at once
+    Given the following users exist:
+      | name          | email                  |
+      | John Doe      | john@example.com       |
+      | Jane Smith    | jane@example.com       |
+      | Bob Johnson   | bob@example.com        |
+    When I deactivate all users and the unknown ID 999999
+    Then the response status should be 200
+    And the deactivation should report 3 deactivated and 1 not found
+    And no user should be active
+
   @Regression
   Scenario Outline: Validate user input
     Given I have user details with name "<name>" and email "<email>"
@@ -88,4 +464,37 @@ Feature: User Management
     Given I want to create 5 users
     When I create all users sequentially
     Then all users should be created successfully
-    And the database should contain 5 users
\ No newline at end of file
+    And the database should contain 5 users
+
+  @Regression
+  Scenario: Queued user writes are committed in groups
+    When I queue the creation of 200 users through the write-behind queue
+    Then 200 queued writes should succeed and 0 should fail
+    And the queued writes should have been committed in fewer than 20 transactions
+    And the database should contain 200 users
+
+  @Regression
+  Scenario: A failing queued write does not fail its group
+    Given a user exists with name "Jane Smith" and email "jane@example.com"
+    When I queue the creation of users with emails "a@example.com,jane@example.com,b@example.com"
+    Then 2 queued writes should succeed and 1 should fail
+    And the database should contain 3 users
+
+  @Regression
+  Scenario: Creates of a rolled back group commit are replayed as new users
+    Given a user exists with name "Jane Smith" and email "jane@example.com"
+    When I queue the creation of users with emails "u1@example.com,u2@example.com,u3@example.com,u4@example.com,jane@example.com,u5@example.com,u6@example.com,u7@example.com"
+    Then 7 queued writes should succeed and 1 should fail
+    And a rolled back group commit should have been replayed one write at a time
+    And the database should contain 8 users
+
+  @Performance @Slow
+  Scenario: Save many users in JDBC batches
+    When I save 2000 users with saveAll
+    Then the database should contain 2000 users
+
+  @Load
+  Scenario: Serve concurrent reads under load
+    Given 100 users exist
+    When 200 clients each retrieve a random user 50 times
+    Then every request should succeed or be shed with status 503
\ No newline at end of file